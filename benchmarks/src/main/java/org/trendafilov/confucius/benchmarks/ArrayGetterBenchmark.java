@@ -0,0 +1,120 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trendafilov.confucius.Configurable;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+/**
+ * Compares the boxed list getters with the primitive array getters, both when
+ * served from the value cache and when every read is parsed from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayGetterBenchmark {
+	private final static String KEY = "shards";
+
+	@Param({ "16", "1024" })
+	private int size;
+
+	@Param({ "1024", "0" })
+	private String cacheSize;
+
+	private Configurable config;
+
+	@Setup
+	public void setUp() throws UnsupportedEncodingException {
+		System.setProperty("conf.cache.size", cacheSize);
+		config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		System.clearProperty("conf.cache.size");
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < size; i++)
+			value.append(i == 0 ? "" : ", ").append(i * 31L);
+		config.setProperty(KEY, value.toString());
+	}
+
+	@Benchmark
+	public long intList() {
+		long sum = 0;
+		List<Integer> values = config.getIntList(KEY);
+		for (int i = 0; i < values.size(); i++)
+			sum += values.get(i);
+		return sum;
+	}
+
+	@Benchmark
+	public long intArray() {
+		long sum = 0;
+		for (int value : config.getIntArray(KEY))
+			sum += value;
+		return sum;
+	}
+
+	@Benchmark
+	public long longList() {
+		long sum = 0;
+		List<Long> values = config.getLongList(KEY);
+		for (int i = 0; i < values.size(); i++)
+			sum += values.get(i);
+		return sum;
+	}
+
+	@Benchmark
+	public long longArray() {
+		long sum = 0;
+		for (long value : config.getLongArray(KEY))
+			sum += value;
+		return sum;
+	}
+
+	@Benchmark
+	public double doubleList() {
+		double sum = 0;
+		List<Double> values = config.getDoubleList(KEY);
+		for (int i = 0; i < values.size(); i++)
+			sum += values.get(i);
+		return sum;
+	}
+
+	@Benchmark
+	public double doubleArray() {
+		double sum = 0;
+		for (double value : config.getDoubleArray(KEY))
+			sum += value;
+		return sum;
+	}
+}
@@ -0,0 +1,88 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+/**
+ * Reads while another thread keeps changing the configuration. Readers never
+ * lock, so their latency should stay close to that of {@link ReadBenchmark}
+ * while the writer publishes new versions.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContendedBenchmark {
+	@Param({ "100", "10000" })
+	private int keys;
+
+	private InjectableConfiguration config;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		config.setProperties(Workload.properties(keys));
+	}
+
+	@Benchmark
+	@Group("oneWriter")
+	@GroupThreads(3)
+	public int read() {
+		return config.getIntValue(Workload.KEY);
+	}
+
+	@Benchmark
+	@Group("oneWriter")
+	@GroupThreads(1)
+	public void write() {
+		config.setProperty(Workload.KEY, next++ & 1023);
+	}
+
+	@Benchmark
+	@Group("oneWriterKeySet")
+	@GroupThreads(3)
+	public int readKeySet() {
+		return config.keySet().size();
+	}
+
+	@Benchmark
+	@Group("oneWriterKeySet")
+	@GroupThreads(1)
+	public void writeKeySet() {
+		config.setProperty(Workload.KEY, next++ & 1023);
+	}
+}
@@ -0,0 +1,67 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+/**
+ * Parses context files of different sizes, with a growing number of
+ * sections, selecting one context from the middle of the file. Every view is
+ * built at parse time, but each one shares the properties it inherits, so the
+ * other contexts only add the cost of their own lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextParseBenchmark {
+	@Param({ "50", "1000" })
+	private int keys;
+
+	@Param({ "1", "20", "200" })
+	private int contexts;
+
+	private byte[] content;
+	private String context;
+
+	@Setup
+	public void setUp() {
+		content = Workload.file(keys, contexts);
+		context = "Context" + contexts / 2;
+	}
+
+	@Benchmark
+	public int parse() {
+		return new InjectableConfiguration(new ByteArrayInputStream(content), context).keySet().size();
+	}
+}
@@ -0,0 +1,97 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+/**
+ * Loads multi-megabyte configuration files, in both the context and the
+ * standard properties format. The {@code readTwice} baseline reads the file
+ * the way the provider used to: all lines first, then once more as a stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileLoadBenchmark {
+	private final static int LINE_LENGTH = 48;
+
+	@Param({ "1", "8" })
+	private int sizeMb;
+
+	@Param({ "context", "standard" })
+	private String format;
+
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = Files.createTempFile("confucius", ".properties");
+		boolean context = format.equals("context");
+		int lines = sizeMb * 1024 * 1024 / LINE_LENGTH;
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			if (context)
+				writer.write("[Default]\n");
+			for (int i = 0; i < lines; i++)
+				writer.write(String.format("service.endpoint.%08d = http://host:%05d/\n", i, i % 65536));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public int load() {
+		return new InjectableConfiguration(file.toString(), null).keySet().size();
+	}
+
+	@Benchmark
+	public int readTwice() throws IOException {
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		Properties props = new Properties();
+		try (InputStream input = Files.newInputStream(file)) {
+			props.load(input);
+		}
+		return lines.size() + props.size();
+	}
+}
@@ -0,0 +1,132 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+/**
+ * Reads from a configuration shared by all benchmark threads: scalar
+ * getters, getters with a default for present and missing keys, list
+ * getters and the key set, with and without key usage tracking. Run it
+ * through {@link ThreadSweep} to see how reads scale with the number of
+ * threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+	@Param({ "100", "10000" })
+	private int keys;
+
+	/**
+	 * One in how many reads is sampled for key usage tracking; 0 disables
+	 * tracking.
+	 */
+	@Param({ "0", "64" })
+	private int usageSample;
+
+	private InjectableConfiguration config;
+
+	@Setup
+	public void setUp() {
+		config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		config.setProperties(Workload.properties(keys));
+		config.setProperty("flag", true);
+		config.setProperty("ratio", 0.75);
+		config.setProperty("hosts", "alpha, beta, gamma, delta");
+		config.setProperty("ports", "8080, 8081, 8082, 8083");
+		config.trackKeyUsage(usageSample);
+	}
+
+	@Benchmark
+	public String stringValue() {
+		return config.getStringValue(Workload.KEY);
+	}
+
+	@Benchmark
+	public int intValue() {
+		return config.getIntValue(Workload.KEY);
+	}
+
+	@Benchmark
+	public long longValue() {
+		return config.getLongValue(Workload.KEY);
+	}
+
+	@Benchmark
+	public boolean booleanValue() {
+		return config.getBooleanValue("flag");
+	}
+
+	@Benchmark
+	public double doubleValue() {
+		return config.getDoubleValue("ratio");
+	}
+
+	@Benchmark
+	public int intValueWithDefault() {
+		return config.getIntValue(Workload.KEY, -1);
+	}
+
+	@Benchmark
+	public int missingIntValueWithDefault() {
+		return config.getIntValue("missing", -1);
+	}
+
+	@Benchmark
+	public String missingStringValueWithDefault() {
+		return config.getStringValue("missing", "fallback");
+	}
+
+	@Benchmark
+	public List<String> stringList() {
+		return config.getStringList("hosts");
+	}
+
+	@Benchmark
+	public List<Integer> intList() {
+		return config.getIntList("ports");
+	}
+
+	@Benchmark
+	public boolean keySet() {
+		return config.keySet().contains(Workload.KEY);
+	}
+
+	@Benchmark
+	public int size() {
+		return config.size();
+	}
+}
@@ -0,0 +1,87 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+/**
+ * Creates a configuration from a file with many contexts and substitutions,
+ * with and without the compiled binary form of the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartupBenchmark {
+	private final static int CONTEXTS = 50;
+	private final static int KEYS_PER_CONTEXT = 100;
+
+	@Param({ "false", "true" })
+	private String compile;
+
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = Files.createTempFile("confucius", ".properties");
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("[Default]\n");
+			for (int i = 0; i < KEYS_PER_CONTEXT; i++)
+				writer.write(String.format("service.%d.url = http://${service.%d.host}:%d/\nservice.%d.host = localhost\n", i, i, 8000 + i, i));
+			for (int c = 0; c < CONTEXTS; c++) {
+				writer.write(String.format("[Context%d : %s]\n", c, c == 0 ? "Default" : "Context" + (c - 1)));
+				for (int i = c; i < KEYS_PER_CONTEXT; i += CONTEXTS)
+					writer.write(String.format("service.%d.host = host-%d-%d.example.com\n", i, c, i));
+			}
+		}
+		System.setProperty("conf.compile", compile);
+		new InjectableConfiguration(file.toString(), null);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		System.clearProperty("conf.compile");
+		Files.delete(file);
+		Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".compiled"));
+	}
+
+	@Benchmark
+	public int start() {
+		return new InjectableConfiguration(file.toString(), "Context" + CONTEXTS / 2).keySet().size();
+	}
+}
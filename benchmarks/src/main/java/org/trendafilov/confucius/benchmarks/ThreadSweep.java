@@ -0,0 +1,59 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count, with the GC profiler,
+ * so that every result comes with its allocation rate and GC counts. The
+ * results of each run are written as JSON to
+ * <tt>jmh-&lt;threads&gt;-threads.json</tt>.
+ * <p/>
+ * <p>
+ * Arguments: a regular expression selecting the benchmarks, and a comma
+ * separated list of thread counts. By default, the read and write benchmarks
+ * run with 1, 2, 4 and 8 threads.
+ * </p>
+ */
+public final class ThreadSweep {
+	private ThreadSweep() {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "(Read|Write)Benchmark";
+		String[] threads = (args.length > 1 ? args[1] : "1,2,4,8").split(",");
+		for (String count : threads) {
+			int n = Integer.parseInt(count.trim());
+			Options options = new OptionsBuilder()
+					.include(include)
+					.threads(n)
+					.addProfiler(GCProfiler.class)
+					.resultFormat(ResultFormatType.JSON)
+					.result(new File("jmh-" + n + "-threads.json").getPath())
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
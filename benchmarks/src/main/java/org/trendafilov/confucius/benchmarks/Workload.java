@@ -0,0 +1,62 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates the configurations shared by the benchmarks.
+ */
+final class Workload {
+	/**
+	 * A key present in every generated configuration, holding an integer.
+	 */
+	final static String KEY = key(0);
+
+	private Workload() {
+	}
+
+	static String key(int i) {
+		return "service." + i + ".timeout";
+	}
+
+	static Map<String, String> properties(int keys) {
+		Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < keys; i++)
+			properties.put(key(i), String.valueOf(i * 100));
+		return properties;
+	}
+
+	/**
+	 * Returns a configuration file with the given number of keys in the
+	 * <tt>Default</tt> context and in each of the given number of other
+	 * contexts.
+	 */
+	static byte[] file(int keys, int contexts) {
+		StringBuilder builder = new StringBuilder("[Default]\n");
+		for (int i = 0; i < keys; i++)
+			builder.append(key(i)).append(" = ").append(i * 100).append(" # millis\n");
+		for (int c = 0; c < contexts; c++) {
+			builder.append("\n[Context").append(c).append("]\n");
+			for (int i = 0; i < keys; i++)
+				builder.append("service.").append(i).append(".host = host-").append(c).append('-').append(i).append(".example.com\n");
+		}
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
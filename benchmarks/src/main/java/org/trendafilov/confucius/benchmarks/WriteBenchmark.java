@@ -0,0 +1,92 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+/**
+ * Writes to a configuration of a given size: single properties, batches of
+ * properties, and a full reset of a configuration read from a stream.
+ * Writers serialize on the configuration, so running it with several threads
+ * through {@link ThreadSweep} measures the contention between them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+	private final static int BATCH = 16;
+
+	@Param({ "100", "10000" })
+	private int keys;
+
+	private InjectableConfiguration config;
+	private Map<String, String>[] batches;
+	private int next;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		config = new InjectableConfiguration(new ByteArrayInputStream(Workload.file(keys, 0)), null);
+		batches = new Map[2];
+		for (int b = 0; b < batches.length; b++) {
+			batches[b] = new HashMap<>();
+			for (int i = 0; i < BATCH; i++)
+				batches[b].put(Workload.key(i * (keys / BATCH)), String.valueOf(b));
+		}
+	}
+
+	@Benchmark
+	public void setProperty() {
+		config.setProperty(Workload.KEY, next++ & 1);
+	}
+
+	@Benchmark
+	public void setProperties() {
+		config.setProperties(batches[next++ & 1]);
+	}
+
+	@Benchmark
+	public void setAndClearProperty() {
+		config.setProperty("runtime", "value");
+		config.clearProperty("runtime");
+	}
+
+	@Benchmark
+	public void reset() {
+		config.setProperty(Workload.KEY, -1);
+		config.reset();
+	}
+}
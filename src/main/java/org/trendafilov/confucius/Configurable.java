@@ -16,517 +16,182 @@
 
 package org.trendafilov.confucius;
 
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
+
+import org.trendafilov.confucius.core.ConfigKey;
+import org.trendafilov.confucius.core.ConfigurationListener;
+import org.trendafilov.confucius.core.ConfigurationUpdate;
 
 /**
  * The <tt>Configurable</tt> interface defines the contracts which are exposed
- * publicly via the API to all clients of the framework.
+ * publicly via the API to all clients of the framework. The read operations
+ * are declared by {@link ConfigurationView}, which is also implemented by
+ * the immutable snapshots of a configuration.
  * 
  * @author Ivan Trendafilov
  * @since  1.0
  */
-public interface Configurable {
-
-	/**
-	 * Returns a {@link Set} view of the keys contained in the configuration
-	 * map.
-	 * 
-	 * @return a set view of the keys contained in the configuration properties
-	 */
-	Set<String> keySet();
-
-	/**
-	 * Returns as a {@code boolean} the configuration value to which the
-	 * specified key is mapped, or throws an unchecked
-	 * {@code ConfigurationException} if the specified key is missing in the
-	 * configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a boolean
-	 */
-	boolean getBooleanValue(String key);
+public interface Configurable extends ConfigurationView {
 
 	/**
-	 * Returns as a {@code boolean} the configuration value to which the
-	 * specified key is mapped, or returns the provided default value argument
-	 * if the specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a boolean. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a boolean, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	boolean getBooleanValue(String key, boolean defaultValue);
+	ConfigKey<Boolean> booleanKey(String key, boolean defaultValue);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of boolean values, as separated on the <b>separator</b>
-	 *         regular expression
-	 */
-	List<Boolean> getBooleanList(String key, String separator);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of boolean values, as separated on the comma character
-	 *         ("<b>,</b>")
-	 */
-	List<Boolean> getBooleanList(String key);
-
-	/**
-	 * Returns as a {@code byte} the configuration value to which the specified
-	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
-	 * the specified key is missing in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a byte
-	 */
-	byte getByteValue(String key);
-
-	/**
-	 * Returns as a {@code byte} the configuration value to which the specified
-	 * key is mapped, or returns the provided default value argument if the
-	 * specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a byte. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a byte, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
-	 */
-	byte getByteValue(String key, byte defaultValue);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of byte values, as separated on the <b>separator</b>
-	 *         regular expression
-	 */
-	List<Byte> getByteList(String key, String separator);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of byte values, as separated on the comma character
-	 *         ("<b>,</b>")
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	List<Byte> getByteList(String key);
+	ConfigKey<Byte> byteKey(String key, byte defaultValue);
 
 	/**
-	 * Returns as a {@code char} the configuration value to which the specified
-	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
-	 * the specified key is missing in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a char
-	 */
-	char getCharValue(String key);
-
-	/**
-	 * Returns as a {@code char} the configuration value to which the specified
-	 * key is mapped, or returns the provided default value argument if the
-	 * specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a char. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a char, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	char getCharValue(String key, char defaultValue);
+	ConfigKey<Character> charKey(String key, char defaultValue);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of char values, as separated on the <b>separator</b>
-	 *         regular expression
-	 */
-	List<Character> getCharList(String key, String separator);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of char values, as separated on the comma character
-	 *         ("<b>,</b>")
-	 */
-	List<Character> getCharList(String key);
-
-	/**
-	 * Returns as a {@code double} the configuration value to which the
-	 * specified key is mapped, or throws an unchecked
-	 * {@code ConfigurationException} if the specified key is missing in the
-	 * configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a double
-	 */
-	double getDoubleValue(String key);
-
-	/**
-	 * Returns as a {@code double} the configuration value to which the
-	 * specified key is mapped, or returns the provided default value argument
-	 * if the specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a double. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a double, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
-	 */
-	double getDoubleValue(String key, double defaultValue);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of double values, as separated on the <b>separator</b>
-	 *         regular expression
-	 */
-	List<Double> getDoubleList(String key, String separator);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of double values, as separated on the comma character
-	 *         ("<b>,</b>")
-	 */
-	List<Double> getDoubleList(String key);
-
-	/**
-	 * Returns as a {@code float} the configuration value to which the specified
-	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
-	 * the specified key is missing in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a float
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	float getFloatValue(String key);
+	ConfigKey<Double> doubleKey(String key, double defaultValue);
 
 	/**
-	 * Returns as a {@code float} the configuration value to which the specified
-	 * key is mapped, or returns the provided default value argument if the
-	 * specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a float. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a float, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	float getFloatValue(String key, float defaultValue);
+	ConfigKey<Float> floatKey(String key, float defaultValue);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of float values, as separated on the <b>separator</b>
-	 *         regular expression
-	 */
-	List<Float> getFloatList(String key, String separator);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of float values, as separated on the comma character
-	 *         ("<b>,</b>")
-	 */
-	List<Float> getFloatList(String key);
-
-	/**
-	 * Returns as an {@code int} the configuration value to which the specified
-	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
-	 * the specified key is missing in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as an int
-	 */
-	int getIntValue(String key);
-
-	/**
-	 * Returns as an {@code int} the configuration value to which the specified
-	 * key is mapped, or returns the provided default value argument if the
-	 * specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as an int. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as an int, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	int getIntValue(String key, int defaultValue);
+	ConfigKey<Integer> intKey(String key, int defaultValue);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of int values, as separated on the <b>separator</b>
-	 *         regular expression
-	 */
-	List<Integer> getIntList(String key, String separator);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of int values, as separated on the comma character
-	 *         ("<b>,</b>")
-	 */
-	List<Integer> getIntList(String key);
-
-	/**
-	 * Returns as a {@code long} the configuration value to which the specified
-	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
-	 * the specified key is missing in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a long
-	 */
-	long getLongValue(String key);
-
-	/**
-	 * Returns as a {@code long} the configuration value to which the specified
-	 * key is mapped, or returns the provided default value argument if the
-	 * specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a long. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a long, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
-	 */
-	long getLongValue(String key, long defaultValue);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of long values, as separated on the <b>separator</b>
-	 *         regular expression
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	List<Long> getLongList(String key, String separator);
+	ConfigKey<Long> longKey(String key, long defaultValue);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of long values, as separated on the comma character
-	 *         ("<b>,</b>")
-	 */
-	List<Long> getLongList(String key);
-
-	/**
-	 * Returns as a {@code short} the configuration value to which the specified
-	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
-	 * the specified key is missing in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a short
-	 */
-	short getShortValue(String key);
-
-	/**
-	 * Returns as a {@code short} the configuration value to which the specified
-	 * key is mapped, or returns the provided default value argument if the
-	 * specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a short. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a short, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
-	 */
-	short getShortValue(String key, short defaultValue);
-
-	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of short values, as separated on the <b>separator</b>
-	 *         regular expression
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	List<Short> getShortList(String key, String separator);
+	ConfigKey<Short> shortKey(String key, short defaultValue);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of short values, as separated on the comma character
-	 *         ("<b>,</b>")
-	 */
-	List<Short> getShortList(String key);
-
-	/**
-	 * Returns as a {@link String} the configuration value to which the
-	 * specified key is mapped, or throws an unchecked
-	 * {@code ConfigurationException} if the specified key is missing in the
-	 * configuration properties.
-	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return associated value as a String
-	 */
-	String getStringValue(String key);
-
-	/**
-	 * Returns as a {@link String} the configuration value to which the
-	 * specified key is mapped, or returns the provided default value argument
-	 * if the specified key is missing in the configuration properties.
+	 * Returns a handle which reads the configuration value mapped to the
+	 * specified key as a String. The handle is refreshed whenever the property
+	 * changes, so reading it involves no lookup or parsing.
 	 * 
 	 * @param key
 	 *            of the configuration property
 	 * @param defaultValue
-	 *            is returned if the map does not contain the passed <b>key</b>
-	 *            parameter
-	 * @return associated value as a String, or <b>defaultValue</b> if the map
-	 *         does not contain the <b>key</b>
+	 *            is returned by the handle while the map does not contain the
+	 *            passed <b>key</b> parameter
+	 * @return a handle to the configuration value
 	 */
-	String getStringValue(String key, String defautValue);
+	ConfigKey<String> stringKey(String key, String defaultValue);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties.
+	 * Registers a listener which is notified asynchronously whenever the
+	 * configuration property indicated by the specified key is set, cleared
+	 * or reset.
 	 * 
 	 * @param key
 	 *            of the configuration property
-	 * @param separator
-	 *            regular expression
-	 * @return a list of strings, as separated on the <b>separator</b> regular
-	 *         expression
+	 * @param listener
+	 *            receives the changes
 	 */
-	List<String> getStringList(String key, String separator);
+	void addListener(String key, ConfigurationListener listener);
 
 	/**
-	 * Returns a List of values mapped to the specified key, or throws an
-	 * unchecked {@code ConfigurationException} if the specified key is missing
-	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
-	 * the regular expression for separation of items.
+	 * Registers a listener which is notified asynchronously whenever a
+	 * configuration property whose key starts with the specified prefix is
+	 * set, cleared or reset. All matching changes of a batch are delivered
+	 * together.
 	 * 
-	 * @param key
-	 *            of the configuration property
-	 * @return a list of strings, as separated on the comma character
-	 *         ("<b>,</b>")
+	 * @param prefix
+	 *            of the configuration property keys, e.g. <tt>db.pool.</tt>
+	 * @param listener
+	 *            receives the changes
 	 */
-	List<String> getStringList(String key);
+	void addPrefixListener(String prefix, ConfigurationListener listener);
 
 	/**
-	 * Returns the current configuration properties.
+	 * Removes all registrations of the specified listener.
 	 * 
-	 * @return properties
-	 * 
-	 * @see java.lang.System#getProperties()
-	 * @see java.util.Properties
+	 * @param listener
+	 *            to remove
 	 */
-	Properties getProperties();
+	void removeListener(ConfigurationListener listener);
 
 	/**
 	 * Sets the configuration property indicated by the specified key.
@@ -545,7 +210,8 @@ public interface Configurable {
 	<T> void setProperty(String key, T value);
 
 	/**
-	 * Sets the configuration properties as indicated by the specified map.
+	 * Sets the configuration properties as indicated by the specified map. The
+	 * properties are published atomically, as by {@link #update}.
 	 * 
 	 * @param properties
 	 *            a map of configuration properties
@@ -555,15 +221,29 @@ public interface Configurable {
 
 	/**
 	 * Sets the configuration properties to the <code>Properties</code>
-	 * argument.
+	 * argument. The properties are published atomically, as by
+	 * {@link #update}.
 	 * 
 	 * @param properties
-	 *            the new system properties
+	 *            the new configuration properties
 	 * @see java.util.Properties
-	 * @see java.lang.System#setProperties(Properties)
 	 */
 	void setProperties(Properties properties);
 
+	/**
+	 * Applies a batch of changes atomically. The changes recorded by the
+	 * update are validated as a whole and published in a single step, so
+	 * readers observe either none or all of them. For example:
+	 * 
+	 * <pre>
+	 * config.update(tx -&gt; tx.setProperty(&quot;db.host&quot;, host).setProperty(&quot;db.port&quot;, port));
+	 * </pre>
+	 * 
+	 * @param update
+	 *            records the changes of the batch
+	 */
+	void update(ConfigurationUpdate update);
+
 	/**
 	 * Removes the configuration property indicated by the specified key.
 	 * 
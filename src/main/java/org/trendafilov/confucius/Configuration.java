@@ -16,12 +16,23 @@
 
 package org.trendafilov.confucius;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.trendafilov.confucius.core.AbstractConfiguration;
 
 /**
  * A lazy and self-managed <tt>Configurable</tt> singleton. Unless dependency
  * injection for configuration is desired, this is the main point of entry for
  * clients into the framework.
+ * <p/>
+ * <p>
+ * The singleton is created on the first call to {@link #getInstance()}.
+ * Applications may call {@link #preload()} at boot to create it on a
+ * background thread instead, so that no request thread pays the cost; callers
+ * of <tt>getInstance()</tt> then only block if loading has not finished yet.
+ * </p>
  * 
  * @author Ivan Trendafilov
  * @since  1.0
@@ -30,7 +41,19 @@ import org.trendafilov.confucius.core.AbstractConfiguration;
  */
 public class Configuration extends AbstractConfiguration {
 
+	/**
+	 * The loading status of the singleton.
+	 */
+	public enum Status {
+		NOT_LOADED, LOADING, LOADED, FAILED
+	}
+
 	private static volatile Configuration instance = null;
+	private static volatile Status status = Status.NOT_LOADED;
+	private static volatile long loadNanos = -1;
+
+	private static final Object preloadLock = new Object();
+	private static CompletableFuture<Configuration> preload;
 
 	private Configuration() {
 		super();
@@ -40,8 +63,92 @@ public class Configuration extends AbstractConfiguration {
 		if (instance == null)
 			synchronized (Configuration.class) {
 				if (instance == null)
-					instance = new Configuration();
+					instance = load();
 			}
 		return instance;
 	}
+
+	/**
+	 * Starts creating the singleton on a background daemon thread, unless it
+	 * was created or is being preloaded already. If the singleton exists, the
+	 * returned future has completed already, even if an earlier preload
+	 * failed; otherwise, a failed preload is attempted again.
+	 * 
+	 * @return completes with the singleton once it is loaded, or with the
+	 *         exception which prevented loading
+	 */
+	public static Future<Configuration> preload() {
+		synchronized (preloadLock) {
+			Configuration current = instance;
+			if (current != null) {
+				if (preload == null || !preload.isDone() || preload.isCompletedExceptionally())
+					preload = CompletableFuture.completedFuture(current);
+			} else if (preload == null || preload.isDone()) {
+				final CompletableFuture<Configuration> future = new CompletableFuture<>();
+				Thread thread = new Thread(new Runnable() {
+					public void run() {
+						try {
+							future.complete(getInstance());
+						} catch (Throwable e) {
+							future.completeExceptionally(e);
+						}
+					}
+				}, "confucius-preload");
+				thread.setDaemon(true);
+				thread.start();
+				preload = future;
+			}
+			return preload;
+		}
+	}
+
+	/**
+	 * Returns the loading status of the singleton.
+	 */
+	public static Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns how long loading the singleton took, or <tt>-1</tt> if it has
+	 * not been loaded.
+	 */
+	public static long getLoadTime(TimeUnit unit) {
+		long nanos = loadNanos;
+		return nanos < 0 ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Discards the singleton, so that it is loaded again on the next call to
+	 * {@link #getInstance()} or {@link #preload()}. Only meant for tests.
+	 */
+	static void unload() {
+		synchronized (Configuration.class) {
+			synchronized (preloadLock) {
+				instance = null;
+				status = Status.NOT_LOADED;
+				loadNanos = -1;
+				preload = null;
+			}
+		}
+	}
+
+	/**
+	 * Creates the singleton. Any failure, including errors such as running
+	 * out of memory while parsing, marks the status as failed before it is
+	 * rethrown, so that a failed load never stays reported as loading.
+	 */
+	private static Configuration load() {
+		status = Status.LOADING;
+		long start = System.nanoTime();
+		try {
+			Configuration configuration = new Configuration();
+			loadNanos = System.nanoTime() - start;
+			status = Status.LOADED;
+			return configuration;
+		} catch (Throwable e) {
+			status = Status.FAILED;
+			throw e;
+		}
+	}
 }
@@ -0,0 +1,787 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Read access to configuration properties. Both a <tt>Configurable</tt> and
+ * each of its immutable snapshots provide it, so code which only reads the
+ * configuration can accept either.
+ * 
+ * <p>
+ * Lists returned by the list getters are unmodifiable, as they may be shared
+ * between callers that read the same key.
+ * </p>
+ * 
+ * @see Configurable
+ * @see org.trendafilov.confucius.core.ConfigurationSnapshot
+ */
+public interface ConfigurationView {
+
+	/**
+	 * Returns a read-only {@link Set} view of the keys contained in the
+	 * configuration map.
+	 * 
+	 * @return a set view of the keys contained in the configuration properties
+	 */
+	Set<String> keySet();
+
+	/**
+	 * Returns the number of configuration properties.
+	 * 
+	 * @return the number of keys contained in the configuration properties
+	 */
+	int size();
+
+	/**
+	 * Returns a read-only {@link Set} view of the keys starting with the given
+	 * prefix, in ascending order.
+	 * 
+	 * @param prefix
+	 *            the prefix of the keys, e.g. <tt>db.</tt>
+	 * @return a set view of the matching keys
+	 */
+	Set<String> getSubset(String prefix);
+
+	/**
+	 * Returns a read-only {@link Map} view of the configuration properties
+	 * whose keys start with the given prefix, in ascending order of keys.
+	 * 
+	 * @param prefix
+	 *            the prefix of the keys, e.g. <tt>db.</tt>
+	 * @return a map view of the matching configuration properties
+	 */
+	Map<String, String> getSubsetAsMap(String prefix);
+
+	/**
+	 * Returns as a {@code boolean} the configuration value to which the
+	 * specified key is mapped, or throws an unchecked
+	 * {@code ConfigurationException} if the specified key is missing in the
+	 * configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a boolean
+	 */
+	boolean getBooleanValue(String key);
+
+	/**
+	 * Returns as a {@code boolean} the configuration value to which the
+	 * specified key is mapped, or returns the provided default value argument
+	 * if the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a boolean, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	boolean getBooleanValue(String key, boolean defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of boolean values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Boolean> getBooleanList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of boolean values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Boolean> getBooleanList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getBooleanList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of boolean values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	boolean[] getBooleanArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of boolean values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	boolean[] getBooleanArray(String key);
+
+	/**
+	 * Returns as a {@code byte} the configuration value to which the specified
+	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
+	 * the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a byte
+	 */
+	byte getByteValue(String key);
+
+	/**
+	 * Returns as a {@code byte} the configuration value to which the specified
+	 * key is mapped, or returns the provided default value argument if the
+	 * specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a byte, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	byte getByteValue(String key, byte defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of byte values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Byte> getByteList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of byte values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Byte> getByteList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getByteList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of byte values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	byte[] getByteArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of byte values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	byte[] getByteArray(String key);
+
+	/**
+	 * Returns as a {@code char} the configuration value to which the specified
+	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
+	 * the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a char
+	 */
+	char getCharValue(String key);
+
+	/**
+	 * Returns as a {@code char} the configuration value to which the specified
+	 * key is mapped, or returns the provided default value argument if the
+	 * specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a char, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	char getCharValue(String key, char defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of char values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Character> getCharList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of char values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Character> getCharList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getCharList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of char values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	char[] getCharArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of char values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	char[] getCharArray(String key);
+
+	/**
+	 * Returns as a {@code double} the configuration value to which the
+	 * specified key is mapped, or throws an unchecked
+	 * {@code ConfigurationException} if the specified key is missing in the
+	 * configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a double
+	 */
+	double getDoubleValue(String key);
+
+	/**
+	 * Returns as a {@code double} the configuration value to which the
+	 * specified key is mapped, or returns the provided default value argument
+	 * if the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a double, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	double getDoubleValue(String key, double defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of double values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Double> getDoubleList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of double values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Double> getDoubleList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getDoubleList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of double values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	double[] getDoubleArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of double values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	double[] getDoubleArray(String key);
+
+	/**
+	 * Returns as a {@code float} the configuration value to which the specified
+	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
+	 * the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a float
+	 */
+	float getFloatValue(String key);
+
+	/**
+	 * Returns as a {@code float} the configuration value to which the specified
+	 * key is mapped, or returns the provided default value argument if the
+	 * specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a float, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	float getFloatValue(String key, float defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of float values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Float> getFloatList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of float values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Float> getFloatList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getFloatList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of float values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	float[] getFloatArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of float values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	float[] getFloatArray(String key);
+
+	/**
+	 * Returns as an {@code int} the configuration value to which the specified
+	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
+	 * the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as an int
+	 */
+	int getIntValue(String key);
+
+	/**
+	 * Returns as an {@code int} the configuration value to which the specified
+	 * key is mapped, or returns the provided default value argument if the
+	 * specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as an int, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	int getIntValue(String key, int defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of int values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Integer> getIntList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of int values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Integer> getIntList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getIntList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of int values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	int[] getIntArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of int values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	int[] getIntArray(String key);
+
+	/**
+	 * Returns as a {@code long} the configuration value to which the specified
+	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
+	 * the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a long
+	 */
+	long getLongValue(String key);
+
+	/**
+	 * Returns as a {@code long} the configuration value to which the specified
+	 * key is mapped, or returns the provided default value argument if the
+	 * specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a long, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	long getLongValue(String key, long defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of long values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Long> getLongList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of long values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Long> getLongList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getLongList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of long values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	long[] getLongArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of long values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	long[] getLongArray(String key);
+
+	/**
+	 * Returns as a {@code short} the configuration value to which the specified
+	 * key is mapped, or throws an unchecked {@code ConfigurationException} if
+	 * the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a short
+	 */
+	short getShortValue(String key);
+
+	/**
+	 * Returns as a {@code short} the configuration value to which the specified
+	 * key is mapped, or returns the provided default value argument if the
+	 * specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a short, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	short getShortValue(String key, short defaultValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of short values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	List<Short> getShortList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of short values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<Short> getShortList(String key);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Unlike {@link #getShortList(String, String)},
+	 * the items are parsed directly into a primitive array without boxing.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return an array of short values, as separated on the <b>separator</b>
+	 *         regular expression
+	 */
+	short[] getShortArray(String key, String separator);
+
+	/**
+	 * Returns an array of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return an array of short values, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	short[] getShortArray(String key);
+
+	/**
+	 * Returns as a {@link String} the configuration value to which the
+	 * specified key is mapped, or throws an unchecked
+	 * {@code ConfigurationException} if the specified key is missing in the
+	 * configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return associated value as a String
+	 */
+	String getStringValue(String key);
+
+	/**
+	 * Returns as a {@link String} the configuration value to which the
+	 * specified key is mapped, or returns the provided default value argument
+	 * if the specified key is missing in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param defaultValue
+	 *            is returned if the map does not contain the passed <b>key</b>
+	 *            parameter
+	 * @return associated value as a String, or <b>defaultValue</b> if the map
+	 *         does not contain the <b>key</b>
+	 */
+	String getStringValue(String key, String defautValue);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @param separator
+	 *            regular expression
+	 * @return a list of strings, as separated on the <b>separator</b> regular
+	 *         expression
+	 */
+	List<String> getStringList(String key, String separator);
+
+	/**
+	 * Returns a List of values mapped to the specified key, or throws an
+	 * unchecked {@code ConfigurationException} if the specified key is missing
+	 * in the configuration properties. Uses the comma character ("<b>,</b>") as
+	 * the regular expression for separation of items.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return a list of strings, as separated on the comma character
+	 *         ("<b>,</b>")
+	 */
+	List<String> getStringList(String key);
+
+	/**
+	 * Returns a copy of the current configuration properties. Changes to the
+	 * returned object are not reflected in the configuration.
+	 * 
+	 * @return properties
+	 * 
+	 * @see java.util.Properties
+	 */
+	Properties getProperties();
+}
@@ -20,318 +20,911 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trendafilov.confucius.Configurable;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-public abstract class AbstractConfiguration implements Configurable {
+public abstract class AbstractConfiguration extends AbstractConfigurationView implements Configurable {
 	private final static Logger LOG = LoggerFactory.getLogger(AbstractConfiguration.class);
 
-	private final static String ITEM_SEPARATOR = ",";
 	protected static String FILE_PARAM = "conf.properties";
 	protected static String CONTEXT_PARAM = "conf.context";
+	protected static String MIRROR_PARAM = "conf.mirror";
+	protected static String CACHE_SIZE_PARAM = "conf.cache.size";
+	protected static String WATCH_PARAM = "conf.watch";
+	protected static String STREAMING_PARAM = "conf.streaming";
+	protected static String LAZY_SUBSTITUTION_PARAM = "conf.substitution.lazy";
+	protected static String COMPILE_PARAM = "conf.compile";
+	protected static String ENVIRONMENT_PARAM = "conf.environment";
+	protected static String HISTORY_PARAM = "conf.history";
+	protected static String USAGE_PARAM = "conf.usage.sample";
+	private final static int DEFAULT_CACHE_SIZE = 1024;
+	private final static long DEFAULT_DEBOUNCE_MILLIS = 500;
+	private final static int DEFAULT_HISTORY = 16;
 
+	/**
+	 * Null when the configuration was streamed; it is then parsed once and
+	 * its views are re-applied on reset.
+	 */
 	private final ConfigurationDataProvider configurationDataProvider;
-	private final String context;
+	private final String filePath;
+
+	/**
+	 * Whether the file is compiled into a binary form next to it, which is
+	 * loaded instead of parsing the file while it is up to date.
+	 */
+	private final boolean compile;
+	private final String initialContext;
 	private final Map<String, String> initialState;
+	private final boolean mirrorSystemProperties;
+	private final ValueCache cache = new ValueCache(Integer.getInteger(CACHE_SIZE_PARAM, DEFAULT_CACHE_SIZE));
+	private final ConcurrentMap<String, List<ConfigKey<?>>> handles = new ConcurrentHashMap<>();
+	private final ListenerRegistry listeners = new ListenerRegistry();
+
+	/**
+	 * Resolves variable references on read, if the
+	 * <tt>conf.substitution.lazy</tt> system property is <tt>true</tt>; null
+	 * otherwise, in which case references are resolved when the file is
+	 * parsed.
+	 */
+	private final LazySubstitution substitution = Boolean.getBoolean(LAZY_SUBSTITUTION_PARAM) ? new LazySubstitution() : null;
+
+	/**
+	 * Serializes writers. Readers never acquire it; they only read the
+	 * published {@link #snapshot}.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The current configuration properties, flattened from {@link #layers}.
+	 * Snapshots are immutable; writers derive a new version, sharing the
+	 * unchanged properties, and swap the reference, so readers need no
+	 * locking.
+	 */
+	private volatile ConfigurationSnapshot snapshot = ConfigurationSnapshot.EMPTY;
+
+	/**
+	 * The most recent versions, each at the index of its version number
+	 * modulo the length.
+	 */
+	private final AtomicReferenceArray<ConfigurationSnapshot> history = new AtomicReferenceArray<>(Math.max(1,
+			Integer.getInteger(HISTORY_PARAM, DEFAULT_HISTORY)));
+
+	/**
+	 * The sources of the configuration properties. Guarded by {@link #lock}.
+	 */
+	private final Layers layers = new Layers();
+
+	/**
+	 * The views of all contexts as last read from the file. Guarded by
+	 * {@link #lock}.
+	 */
+	private Parser parser;
+
+	/**
+	 * The active context. Written while holding {@link #lock}.
+	 */
+	private volatile String context;
+
+	/**
+	 * Reloads the file when it changes, if it is watched. Guarded by
+	 * {@link #lock}.
+	 */
+	private FileWatcher watcher;
+
+	private volatile ConfigurationMetrics metrics = ConfigurationMetrics.NONE;
+
+	/**
+	 * Counts the reads of each key, if tracking is enabled; null otherwise.
+	 */
+	private volatile KeyUsageTracker usage = Integer.getInteger(USAGE_PARAM, 0) > 0 ? new KeyUsageTracker(
+			Integer.getInteger(USAGE_PARAM)) : null;
 
 	public AbstractConfiguration() {
-		this.configurationDataProvider = new FileConfigurationDataProvider(System.getProperty(FILE_PARAM));
-		this.context = System.getProperty(CONTEXT_PARAM);
+		this.filePath = System.getProperty(FILE_PARAM);
+		this.compile = filePath != null && Boolean.getBoolean(COMPILE_PARAM);
+		this.configurationDataProvider = new FileConfigurationDataProvider(filePath);
+		this.initialContext = System.getProperty(CONTEXT_PARAM);
+		this.mirrorSystemProperties = Boolean.getBoolean(MIRROR_PARAM);
 		this.initialState = Collections.unmodifiableMap(Utils.propertiesToMap(System.getProperties()));
 		init();
+		if (filePath != null && Boolean.getBoolean(WATCH_PARAM))
+			watch();
 	}
 
 	public AbstractConfiguration(String filePath, String context) {
 		if (filePath == null)
 			throw new ConfigurationException("filePath cannot be null. Use no arg constructor instead.");
+		Map<String, String> state = Utils.propertiesToMap(System.getProperties());
 		if (context != null)
-			setProperty(CONTEXT_PARAM, context);
-		setProperty(FILE_PARAM, filePath);
+			state.put(CONTEXT_PARAM, context);
+		state.put(FILE_PARAM, filePath);
+		this.filePath = filePath;
+		this.compile = Boolean.getBoolean(COMPILE_PARAM);
 		this.configurationDataProvider = new FileConfigurationDataProvider(filePath);
-		this.context = context;
-		this.initialState = Collections.unmodifiableMap(Utils.propertiesToMap(System.getProperties()));
+		this.initialContext = context;
+		this.mirrorSystemProperties = Boolean.getBoolean(MIRROR_PARAM);
+		this.initialState = Collections.unmodifiableMap(state);
 		init();
+		if (Boolean.getBoolean(WATCH_PARAM))
+			watch();
 	}
 
+	/**
+	 * If the <tt>conf.streaming</tt> system property is <tt>true</tt>, the
+	 * stream is parsed incrementally in a single pass instead of being read
+	 * into memory first, which keeps large generated configurations from
+	 * spiking the heap.
+	 */
 	public AbstractConfiguration(InputStream inputStream, String context) {
-		this.configurationDataProvider = new StreamConfigurationDataProvider(inputStream);
-		this.context = context;
+		this.filePath = null;
+		this.compile = false;
+		this.initialContext = context;
+		this.mirrorSystemProperties = Boolean.getBoolean(MIRROR_PARAM);
 		this.initialState = Collections.unmodifiableMap(Utils.propertiesToMap(System.getProperties()));
-		init();
+		if (inputStream != null && Boolean.getBoolean(STREAMING_PARAM)) {
+			this.configurationDataProvider = null;
+			LOG.info("Initializing configuration...");
+			restore(new Parser(inputStream, null, substitution == null));
+		} else {
+			this.configurationDataProvider = new StreamConfigurationDataProvider(inputStream);
+			init();
+		}
 	}
 
 	private void init() {
 		LOG.info("Initializing configuration...");
-		setProperties(initialState);
-		setProperties(new Parser(configurationDataProvider, context).getConfiguration());
+		restore(parse());
 	}
 
-	public synchronized Set<String> keySet() {
-		return Utils.propertiesToMap(getProperties()).keySet();
+	private Parser parse() {
+		if (configurationDataProvider == null)
+			synchronized (lock) {
+				return parser;
+			}
+		long start = System.nanoTime();
+		Parser parser;
+		if (compile)
+			parser = CompiledConfiguration.load(Paths.get(filePath), configurationDataProvider, substitution == null);
+		else
+			parser = new Parser(configurationDataProvider, null, substitution == null);
+		metrics.recordParse(System.nanoTime() - start);
+		return parser;
 	}
 
-	public boolean getBooleanValue(String key) {
-		return Boolean.parseBoolean(getKey(key));
+	/**
+	 * Brings the configuration back to the initial context of the given file
+	 * configuration and drops the runtime layer, publishing only the
+	 * properties which differ from the current state. The file is parsed by
+	 * the caller, outside of the lock. On the initial load, the environment
+	 * and System layers are filled in as well.
+	 */
+	private ConfigurationDiff restore(Parser parser) {
+		ConfigurationDiff diff;
+		synchronized (lock) {
+			if (this.parser == null) {
+				layers.replace(Layer.ENVIRONMENT, environment());
+				layers.replace(Layer.SYSTEM, initialState);
+				replaceFileLayer(parser, initialContext);
+				diff = apply(layers.flatten());
+			} else {
+				Map<String, String> configuration = parser.getConfiguration(initialContext);
+				Map<String, String> changes = layers.replace(Layer.RUNTIME, Collections.<String, String> emptyMap());
+				changes.putAll(replaceFileLayer(parser, configuration, initialContext));
+				diff = apply(changes);
+			}
+		}
+		listeners.deliver();
+		return diff;
 	}
 
-	public synchronized boolean getBooleanValue(String key, boolean defaultValue) {
-		String value = System.getProperty(key);
-		return value == null ? defaultValue : Boolean.parseBoolean(value);
+	/**
+	 * Replaces the file layer with the view of the given context. Properties
+	 * removed from the file fall back to their value in the layers below, if
+	 * any. Must be called while holding the lock.
+	 * 
+	 * @return the visible values of the keys the file layer held or holds
+	 */
+	private Map<String, String> replaceFileLayer(Parser parser, String context) {
+		return replaceFileLayer(parser, parser.getConfiguration(context), context);
 	}
 
-	public List<Boolean> getBooleanList(String key, String separator) {
-		List<Boolean> parts = new ArrayList<>();
-		for (String value : getKey(key).split(separator))
-			parts.add(Boolean.parseBoolean(value.trim()));
-		return parts;
+	private Map<String, String> replaceFileLayer(Parser parser, Map<String, String> configuration, String context) {
+		if (initialContext == null ? context != null : !initialContext.equals(context)) {
+			configuration = new HashMap<>(configuration);
+			configuration.put(CONTEXT_PARAM, context);
+		}
+		Map<String, String> changes = layers.replace(Layer.FILE, configuration);
+		if (watcher != null && parser != this.parser)
+			watcher.loaded(parser.getChecksum());
+		this.parser = parser;
+		this.context = context;
+		return changes;
 	}
 
-	public List<Boolean> getBooleanList(String key) {
-		return getBooleanList(key, ITEM_SEPARATOR);
+	private static Map<String, String> environment() {
+		return Boolean.getBoolean(ENVIRONMENT_PARAM) ? System.getenv() : Collections.<String, String> emptyMap();
 	}
 
-	public byte getByteValue(String key) {
-		try {
-			return Byte.parseByte(getKey(key));
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable byte", key));
+	/**
+	 * Publishes those of the given changes which alter the current state and
+	 * logs each of them. The initial load sets every System property, so its
+	 * properties are logged at DEBUG, with a summary at INFO. Must be called
+	 * while holding the lock.
+	 */
+	private ConfigurationDiff apply(Map<String, String> changes) {
+		boolean initial = snapshot.size() == 0;
+		ConfigurationDiff diff = ConfigurationDiff.of(snapshot.getPropertyMap(), changes);
+		if (diff.isEmpty())
+			return diff;
+		publish(diff.toChanges());
+		if (initial) {
+			if (LOG.isDebugEnabled())
+				for (Entry<String, String> entry : diff.getAdded().entrySet())
+					LOG.debug("Set configuration property: [{}] => [{}]", entry.getKey(), entry.getValue());
+			LOG.info("Loaded {} configuration properties", diff.size());
+			return diff;
 		}
+		for (Entry<String, String> entry : diff.getAdded().entrySet())
+			LOG.info("Set configuration property: [{}] => [{}]", entry.getKey(), entry.getValue());
+		for (Entry<String, String> entry : diff.getChanged().entrySet())
+			LOG.info("Set configuration property: [{}] => [{}]", entry.getKey(), entry.getValue());
+		for (String key : diff.getRemoved())
+			LOG.info("Unset configuration property: [{}]", key);
+		return diff;
 	}
 
-	public synchronized byte getByteValue(String key, byte defaultValue) {
-		String value = System.getProperty(key);
-		try {
-			return value == null ? defaultValue : Byte.parseByte(value);
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable byte", key));
-		}
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * The set is a read-only view of the current snapshot. It is neither
+	 * copied nor locked, and it does not change when the configuration does.
+	 * To iterate over the values as well, iterate over {@link #getSnapshot()}.
+	 * </p>
+	 */
+	public Set<String> keySet() {
+		return snapshot.keySet();
 	}
 
-	public List<Byte> getByteList(String key, String separator) {
-		List<Byte> parts = new ArrayList<>();
-		try {
-			for (String value : getKey(key).split(separator))
-				parts.add(Byte.parseByte(value.trim()));
-			return parts;
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable byte", key));
-		}
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * The size is read from the current snapshot, without allocating.
+	 * </p>
+	 */
+	public int size() {
+		return snapshot.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * The set is a read-only view of the current snapshot. Finding the keys
+	 * costs O(log n + k) for k matching keys.
+	 * </p>
+	 * 
+	 * @see ConfigurationSnapshot#getSubset(String)
+	 */
+	public Set<String> getSubset(String prefix) {
+		return snapshot.getSubset(prefix);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * The map is a read-only view of the current snapshot.
+	 * </p>
+	 * 
+	 * @see ConfigurationSnapshot#getSubsetAsMap(String)
+	 */
+	public Map<String, String> getSubsetAsMap(String prefix) {
+		return snapshot.getSubsetAsMap(prefix);
 	}
 
-	public List<Byte> getByteList(String key) {
-		return getByteList(key, ITEM_SEPARATOR);
+	public ConfigKey<Boolean> booleanKey(String key, boolean defaultValue) {
+		return register(key, ValueConverter.BOOLEAN, defaultValue);
 	}
 
-	public char getCharValue(String key) {
-		return getKey(key).charAt(0);
+	public ConfigKey<Byte> byteKey(String key, byte defaultValue) {
+		return register(key, ValueConverter.BYTE, defaultValue);
 	}
 
-	public synchronized char getCharValue(String key, char defaultValue) {
-		String value = System.getProperty(key);
-		return value == null ? defaultValue : value.charAt(0);
+	public ConfigKey<Character> charKey(String key, char defaultValue) {
+		return register(key, ValueConverter.CHAR, defaultValue);
 	}
 
-	public List<Character> getCharList(String key, String separator) {
-		List<Character> parts = new ArrayList<>();
-		for (String value : getKey(key).split(separator))
-			parts.add(value.trim().charAt(0));
-		return parts;
+	public ConfigKey<Double> doubleKey(String key, double defaultValue) {
+		return register(key, ValueConverter.DOUBLE, defaultValue);
 	}
 
-	public List<Character> getCharList(String key) {
-		return getCharList(key, ITEM_SEPARATOR);
+	public ConfigKey<Float> floatKey(String key, float defaultValue) {
+		return register(key, ValueConverter.FLOAT, defaultValue);
 	}
 
-	public double getDoubleValue(String key) {
-		return Double.parseDouble(getKey(key));
+	public ConfigKey<Integer> intKey(String key, int defaultValue) {
+		return register(key, ValueConverter.INT, defaultValue);
 	}
 
-	public synchronized double getDoubleValue(String key, double defaultValue) {
-		String value = System.getProperty(key);
-		return value == null ? defaultValue : Double.parseDouble(value);
+	public ConfigKey<Long> longKey(String key, long defaultValue) {
+		return register(key, ValueConverter.LONG, defaultValue);
 	}
 
-	public List<Double> getDoubleList(String key, String separator) {
-		List<Double> parts = new ArrayList<>();
-		for (String value : getKey(key).split(separator))
-			parts.add(Double.parseDouble(value.trim()));
-		return parts;
+	public ConfigKey<Short> shortKey(String key, short defaultValue) {
+		return register(key, ValueConverter.SHORT, defaultValue);
 	}
 
-	public List<Double> getDoubleList(String key) {
-		return getDoubleList(key, ITEM_SEPARATOR);
+	public ConfigKey<String> stringKey(String key, String defaultValue) {
+		return register(key, ValueConverter.STRING, defaultValue);
 	}
 
-	public float getFloatValue(String key) {
-		return Float.parseFloat(getKey(key));
+	public void addListener(String key, ConfigurationListener listener) {
+		listeners.addListener(key, listener);
 	}
 
-	public synchronized float getFloatValue(String key, float defaultValue) {
-		String value = System.getProperty(key);
-		return value == null ? defaultValue : Float.parseFloat(value);
+	public void addPrefixListener(String prefix, ConfigurationListener listener) {
+		listeners.addPrefixListener(prefix, listener);
 	}
 
-	public List<Float> getFloatList(String key, String separator) {
-		List<Float> parts = new ArrayList<>();
-		for (String value : getKey(key).split(separator))
-			parts.add(Float.parseFloat(value.trim()));
-		return parts;
+	public void removeListener(ConfigurationListener listener) {
+		listeners.removeListener(listener);
+	}
+
+	/**
+	 * Sets the executor on which listeners are notified. By default, all
+	 * configurations share a single daemon thread.
+	 * 
+	 * @param executor
+	 *            runs listener notifications, or <tt>null</tt> to restore the
+	 *            default
+	 */
+	public void setListenerExecutor(Executor executor) {
+		listeners.setExecutor(executor);
+	}
+
+	/**
+	 * Sets the sink receiving measurements of reads, writes, parses, reloads
+	 * and resets. By default, measurements are discarded at close to no cost.
+	 * 
+	 * @param metrics
+	 *            the sink, or <tt>null</tt> to discard measurements
+	 */
+	public void setMetrics(ConfigurationMetrics metrics) {
+		this.metrics = metrics == null ? ConfigurationMetrics.NONE : metrics;
+	}
+
+	/**
+	 * Starts tracking which keys are read, how often and by which getters,
+	 * discarding what was tracked before. One in <tt>sampleRate</tt> reads is
+	 * recorded, so that tracking stays cheap on hot paths. Tracking can also
+	 * be enabled by setting the <tt>conf.usage.sample</tt> system property to
+	 * the sample rate.
+	 * 
+	 * @param sampleRate
+	 *            records one in this many reads; 1 records every read, and 0
+	 *            stops tracking
+	 * @see #getKeyUsageReport()
+	 */
+	public void trackKeyUsage(int sampleRate) {
+		if (sampleRate < 0)
+			throw new IllegalArgumentException("sampleRate cannot be negative");
+		usage = sampleRate == 0 ? null : new KeyUsageTracker(sampleRate);
+	}
+
+	/**
+	 * Returns the keys of the current configuration which were never read,
+	 * and the usage of the keys which were, since tracking was enabled.
+	 * 
+	 * @throws ConfigurationException
+	 *             if key usage is not tracked
+	 * @see #trackKeyUsage(int)
+	 */
+	public KeyUsageReport getKeyUsageReport() {
+		KeyUsageTracker usage = this.usage;
+		if (usage == null)
+			throw new ConfigurationException("Key usage is not tracked");
+		return usage.report(snapshot.keySet(), handles.keySet());
+	}
+
+	public Properties getProperties() {
+		return snapshot.getProperties();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * As with {@link #update}, a value destined for a key with registered
+	 * {@link ConfigKey} handles must be convertible to the type of every such
+	 * handle, otherwise a {@code ConfigurationException} is thrown and the
+	 * value is not published.
+	 * </p>
+	 */
+	public <T> void setProperty(String key, T value) {
+		String item = value.toString();
+		synchronized (lock) {
+			validate(Collections.singletonMap(key, item));
+			publish(layers.update(Layer.RUNTIME, Collections.singletonMap(key, item)));
+		}
+		listeners.deliver();
+		metrics.recordWrite(1);
+		LOG.info("Set configuration property: [{}] => [{}]", key, item);
 	}
 
-	public List<Float> getFloatList(String key) {
-		return getFloatList(key, ITEM_SEPARATOR);
+	public <T> void setProperties(final Map<String, T> properties) {
+		update(new ConfigurationUpdate() {
+			public void apply(ConfigurationTransaction transaction) {
+				transaction.setProperties(properties);
+			}
+		});
 	}
 
-	public int getIntValue(String key) {
-		return Integer.parseInt(getKey(key));
+	public void setProperties(final Properties properties) {
+		update(new ConfigurationUpdate() {
+			public void apply(ConfigurationTransaction transaction) {
+				for (Object e : properties.keySet())
+					transaction.setProperty((String) e, properties.getProperty((String) e));
+			}
+		});
 	}
 
-	public synchronized int getIntValue(String key, int defaultValue) {
-		String value = System.getProperty(key);
-		return value == null ? defaultValue : Integer.parseInt(value);
+	public void clearProperty(String key) {
+		synchronized (lock) {
+			publish(layers.update(Layer.RUNTIME, Collections.<String, String> singletonMap(key, null)));
+		}
+		listeners.deliver();
+		metrics.recordWrite(1);
+		LOG.info("Unset configuration property: [{}]", key);
 	}
 
-	public List<Integer> getIntList(String key, String separator) {
-		List<Integer> parts = new ArrayList<>();
-		for (String value : getKey(key).split(separator))
-			parts.add(Integer.parseInt(value.trim()));
-		return parts;
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * Values destined for keys with registered {@link ConfigKey} handles must
+	 * be convertible to the type of every such handle. If any change fails
+	 * validation, a {@code ConfigurationException} listing all offending keys
+	 * is thrown and nothing is published.
+	 * </p>
+	 */
+	public void update(ConfigurationUpdate update) {
+		ConfigurationTransaction transaction = new ConfigurationTransaction();
+		update.apply(transaction);
+		Map<String, String> changes = transaction.getChanges();
+		int cleared = 0;
+		synchronized (lock) {
+			validate(changes);
+			publish(layers.update(Layer.RUNTIME, changes));
+		}
+		listeners.deliver();
+		metrics.recordWrite(changes.size());
+		for (Entry<String, String> change : changes.entrySet())
+			if (change.getValue() == null)
+				cleared++;
+			else
+				LOG.debug("Set configuration property: [{}] => [{}]", change.getKey(), change.getValue());
+		LOG.info("Updated configuration: {} properties set, {} cleared", changes.size() - cleared, cleared);
 	}
 
-	public List<Integer> getIntList(String key) {
-		return getIntList(key, ITEM_SEPARATOR);
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * The reset procedure restores configuration properties to their initial
+	 * values at the time of creation of the <tt>Configurable</tt> instance.
+	 * Configuration properties specified via a file are re-processed. Only the
+	 * properties which differ from the current state are published, in a
+	 * single step, so concurrent readers never observe a partially reset
+	 * configuration.
+	 * </p>
+	 * <p>
+	 * Only the runtime and file layers are rebuilt, so the cost is
+	 * proportional to the number of keys in them rather than to the number of
+	 * System properties.
+	 * </p>
+	 */
+	public void reset() {
+		LOG.info("Initializing configuration...");
+		Parser parser = parse();
+		long start = System.nanoTime();
+		restore(parser);
+		metrics.recordReset(System.nanoTime() - start);
+		LOG.info("Configuration properties have been reset");
 	}
 
-	public long getLongValue(String key) {
-		try {
-			return Long.parseLong(getKey(key));
-		} catch (NumberFormatException e) {
-		        throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable long", key));
+	/**
+	 * Rebuilds a single layer from its source, publishing only the properties
+	 * whose visible value changed. The cost is proportional to the number of
+	 * keys in the layer.
+	 * <ul>
+	 * <li>{@link Layer#RUNTIME}: drops the properties set or cleared at
+	 * runtime.</li>
+	 * <li>{@link Layer#FILE}: re-reads the file in the initial context.</li>
+	 * <li>{@link Layer#SYSTEM}: re-reads the System properties.</li>
+	 * <li>{@link Layer#ENVIRONMENT}: re-reads the environment, if enabled.</li>
+	 * </ul>
+	 * 
+	 * @return the changes made to the configuration
+	 */
+	public ConfigurationDiff reset(Layer layer) {
+		Parser parser = layer == Layer.FILE ? parse() : null;
+		long start = System.nanoTime();
+		ConfigurationDiff diff;
+		synchronized (lock) {
+			Map<String, String> changes;
+			switch (layer) {
+			case RUNTIME:
+				changes = layers.replace(layer, Collections.<String, String> emptyMap());
+				break;
+			case FILE:
+				changes = replaceFileLayer(parser, initialContext);
+				break;
+			case SYSTEM:
+				Map<String, String> state = Utils.propertiesToMap(System.getProperties());
+				for (String key : Arrays.asList(FILE_PARAM, CONTEXT_PARAM))
+					if (initialState.containsKey(key))
+						state.put(key, initialState.get(key));
+					else
+						state.remove(key);
+				changes = layers.replace(layer, state);
+				break;
+			default:
+				changes = layers.replace(layer, environment());
+			}
+			diff = apply(changes);
 		}
+		metrics.recordReset(System.nanoTime() - start);
+		listeners.deliver();
+		LOG.info("Configuration layer {} has been reset: {} added, {} changed, {} removed", layer, diff.getAdded().size(), diff
+				.getChanged().size(), diff.getRemoved().size());
+		return diff;
 	}
 
-	public synchronized long getLongValue(String key, long defaultValue) {
-		String value = System.getProperty(key);
-		try {
-			return value == null ? defaultValue : Long.parseLong(value);
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable long", key));
+	/**
+	 * Returns the properties of the given layer. Keys which a layer hides in
+	 * the layers below, such as properties cleared at runtime, are mapped to
+	 * <tt>null</tt>.
+	 */
+	public Map<String, String> getLayer(Layer layer) {
+		synchronized (lock) {
+			return new HashMap<>(layers.get(layer));
 		}
 	}
 
-	public List<Long> getLongList(String key, String separator) {
-		List<Long> parts = new ArrayList<>();
-		try {
-			for (String value : getKey(key).split(separator))
-				parts.add(Long.parseLong(value.trim()));
-			return parts;
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable long", key));
+	/**
+	 * Returns the layer the value of the given key comes from, or null if the
+	 * key is not set.
+	 */
+	public Layer getSource(String key) {
+		synchronized (lock) {
+			return layers.source(key);
 		}
 	}
 
-	public List<Long> getLongList(String key) {
-		return getLongList(key, ITEM_SEPARATOR);
+	/**
+	 * Returns the version number of the current configuration. Every change
+	 * increments it.
+	 */
+	public long getVersion() {
+		return snapshot.getVersion();
 	}
 
-	public short getShortValue(String key) {
-		try {
-			return Short.parseShort(getKey(key));
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable short", key));
+	/**
+	 * Returns the current version of the configuration. Reads through the
+	 * snapshot are unaffected by later changes, so it can be pinned for the
+	 * duration of a unit of work which needs consistent values across keys.
+	 */
+	public ConfigurationSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the given version of the configuration, if it is still retained.
+	 * The most recent 16 versions are retained; use the <tt>conf.history</tt>
+	 * system property to change the number.
+	 * 
+	 * @param version
+	 *            the version number
+	 * @return the snapshot, or null if the version is not retained
+	 */
+	public ConfigurationSnapshot getSnapshot(long version) {
+		ConfigurationSnapshot current = snapshot;
+		if (version == current.getVersion())
+			return current;
+		if (version <= 0 || version > current.getVersion())
+			return null;
+		ConfigurationSnapshot retained = history.get((int) (version % history.length()));
+		return retained != null && retained.getVersion() == version ? retained : null;
+	}
+
+	/**
+	 * Re-reads the configuration file and applies only the properties which
+	 * changed in the file since it was last read: added and modified
+	 * properties are set, and properties removed from the file fall back to
+	 * their System or environment value, if any. Properties set or cleared at
+	 * runtime take precedence over the file, so they are kept. All changes are
+	 * published in a single step.
+	 * 
+	 * @return the changes made to the configuration
+	 */
+	public ConfigurationDiff reload() {
+		long start = System.nanoTime();
+		Parser parser = parse();
+		ConfigurationDiff diff;
+		synchronized (lock) {
+			diff = apply(replaceFileLayer(parser, context));
 		}
+		listeners.deliver();
+		metrics.recordReload(System.nanoTime() - start);
+		LOG.info("Configuration has been reloaded: {} added, {} changed, {} removed", diff.getAdded().size(), diff.getChanged().size(),
+				diff.getRemoved().size());
+		return diff;
 	}
 
-	public synchronized short getShortValue(String key, short defaultValue) {
-		String value = System.getProperty(key);
-		try {
-			return value == null ? defaultValue : Short.parseShort(value);
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable short", key));
+	/**
+	 * Makes the given context the active one. The views of all contexts are
+	 * built when the configuration is read, so the file is not read again.
+	 * As with {@link #reload()}, properties set or cleared at runtime are
+	 * kept, and all changes are published in a single step. The <tt>conf.context</tt> property is updated to the new context.
+	 * {@link #reset()} returns to the context the configuration was created
+	 * with.
+	 * 
+	 * @param context
+	 *            the context to activate, or null for the <tt>Default</tt>
+	 *            context only
+	 * @return the changes made to the configuration
+	 * @throws ConfigurationException
+	 *             if the context, or one it inherits from, cannot be parsed
+	 */
+	public ConfigurationDiff switchContext(String context) {
+		long start = System.nanoTime();
+		ConfigurationDiff diff;
+		synchronized (lock) {
+			diff = apply(replaceFileLayer(parser, context));
 		}
+		listeners.deliver();
+		metrics.recordReload(System.nanoTime() - start);
+		LOG.info("Switched to configuration context [{}]: {} added, {} changed, {} removed", context, diff.getAdded().size(),
+				diff.getChanged().size(), diff.getRemoved().size());
+		return diff;
 	}
 
-	public List<Short> getShortList(String key, String separator) {
-		List<Short> parts = new ArrayList<>();
-		try {
-			for (String value : getKey(key).split(separator))
-				parts.add(Short.parseShort(value.trim()));
-			return parts;
-		} catch (NumberFormatException e) {
-			throw new NumberFormatException(String.format("Configuration value [%s] is not a parsable short", key));
+	/**
+	 * Returns the active context, or null if only the <tt>Default</tt> context
+	 * is in use.
+	 */
+	public String getContext() {
+		return context;
+	}
+
+	/**
+	 * Returns the names of the contexts declared in the configuration.
+	 */
+	public Set<String> getContexts() {
+		synchronized (lock) {
+			return parser.getContexts();
 		}
 	}
 
-	public List<Short> getShortList(String key) {
-		return getShortList(key, ITEM_SEPARATOR);
+	/**
+	 * Starts watching the configuration file, reloading it whenever its
+	 * content changes. Equivalent to {@code watch(500)}.
+	 * 
+	 * @see #watch(long)
+	 */
+	public void watch() {
+		watch(DEFAULT_DEBOUNCE_MILLIS);
 	}
 
-	public String getStringValue(String key) {
-		return getKey(key);
+	/**
+	 * Starts watching the configuration file, reloading it whenever its
+	 * content changes. Bursts of writes are coalesced: the file is only
+	 * reloaded once it has not been modified for <tt>debounceMillis</tt>.
+	 * Watching can also be enabled by setting the <tt>conf.watch</tt> system
+	 * property to <tt>true</tt>.
+	 * 
+	 * @param debounceMillis
+	 *            quiet period after the last write before reloading
+	 */
+	public void watch(long debounceMillis) {
+		if (filePath == null)
+			throw new ConfigurationException("Only configurations read from a file can be watched");
+		synchronized (lock) {
+			if (watcher != null)
+				return;
+			try {
+				watcher = new FileWatcher(Paths.get(filePath), debounceMillis, new Runnable() {
+					public void run() {
+						reload();
+					}
+				}, parser.getChecksum());
+			} catch (IOException e) {
+				throw new ConfigurationException(String.format("Unable to watch configuration file [%s]", filePath), e);
+			}
+			watcher.start();
+		}
 	}
 
-	public synchronized String getStringValue(String key, String defautValue) {
-		String value = System.getProperty(key);
-		return value == null ? defautValue : value;
+	/**
+	 * Stops watching the configuration file.
+	 */
+	public void stopWatching() {
+		synchronized (lock) {
+			if (watcher != null)
+				watcher.stop();
+			watcher = null;
+		}
 	}
 
-	public List<String> getStringList(String key, String separator) {
-		List<String> parts = new ArrayList<>();
-		for (String value : getKey(key).split(separator))
-			parts.add(value.trim());
-		return parts;
+	/**
+	 * Publishes a new snapshot with the given changes applied; keys mapped to
+	 * <tt>null</tt> are removed. Must be called while holding the lock.
+	 */
+	private void publish(Map<String, String> changes) {
+		if (mirrorSystemProperties)
+			for (Entry<String, String> change : changes.entrySet())
+				if (change.getValue() == null)
+					System.clearProperty(change.getKey());
+				else
+					System.setProperty(change.getKey(), change.getValue());
+		PersistentMap<String> state = snapshot.getPropertyMap().withChanges(changes);
+		KeyIndex index = snapshot.getIndex().withChanges(changes);
+		long version = snapshot.getVersion() + 1;
+		if (substitution == null) {
+			publish(new ConfigurationSnapshot(version, state, index, null, this));
+			published(changes);
+			return;
+		}
+		Map<String, String> derived = substitution.publish(state, changes);
+		publish(new ConfigurationSnapshot(version, state, index, substitution.getState(), this));
+		for (String key : derived.keySet())
+			changed(key);
+		published(changes, derived);
 	}
 
-	public List<String> getStringList(String key) {
-		return getStringList(key, ITEM_SEPARATOR);
+	private void publish(ConfigurationSnapshot next) {
+		history.set((int) (next.getVersion() % history.length()), next);
+		snapshot = next;
+	}
+
+	/**
+	 * Checks that every changed key with a {@link ConfigKey} handle can be
+	 * converted to the type of the handle. In lazy substitution mode, the
+	 * value is checked with its references resolved as they would be after
+	 * the change.
+	 */
+	private void validate(Map<String, String> changes) {
+		List<String> invalid = new ArrayList<>();
+		Map<String, String> state = null;
+		for (Entry<String, String> change : changes.entrySet()) {
+			List<ConfigKey<?>> keyHandles = handles.get(change.getKey());
+			if (change.getValue() == null || keyHandles == null)
+				continue;
+			String value = change.getValue();
+			if (substitution != null && VariableResolver.hasReferences(value)) {
+				if (state == null) {
+					state = snapshot.getPropertyMap().withChanges(changes);
+				}
+				value = LazySubstitution.preview(state, change.getKey());
+			}
+			for (ConfigKey<?> handle : keyHandles)
+				if (!handle.accepts(value)) {
+					invalid.add(change.getKey());
+					break;
+				}
+		}
+		if (!invalid.isEmpty())
+			throw new ConfigurationException(String.format("Rejected configuration update, unconvertible values for keys %s", invalid));
 	}
 
-	public synchronized Properties getProperties() {
-		return System.getProperties();
+	/**
+	 * Must be called by every writer, while holding the lock, with the keys
+	 * whose values were published or removed. The writer delivers the
+	 * changes to the listeners once it has released the lock.
+	 */
+	private void published(Map<String, String> changes) {
+		for (String key : changes.keySet())
+			changed(key);
+		listeners.dispatch(changes);
 	}
 
-	public synchronized <T> void setProperty(String key, T value) {
-		String item = value.toString();
-		System.setProperty(key, item);
-		LOG.info("Set configuration property: [{}] => [{}]", key, item);
+	/**
+	 * Notifies listeners of the resolved values of the changed keys, and of
+	 * the keys whose value changed because a key they refer to changed.
+	 */
+	private void published(Map<String, String> changes, Map<String, String> derived) {
+		for (String key : changes.keySet())
+			changed(key);
+		if (listeners.isEmpty())
+			return;
+		Map<String, String> resolved = new LinkedHashMap<>();
+		for (Entry<String, String> change : changes.entrySet())
+			resolved.put(change.getKey(), change.getValue() == null ? null : lookup(change.getKey()));
+		resolved.putAll(derived);
+		listeners.dispatch(resolved);
+	}
+
+	private void changed(String key) {
+		cache.invalidate(key);
+		List<ConfigKey<?>> keyHandles = handles.get(key);
+		if (keyHandles != null) {
+			String value = lookup(key);
+			for (ConfigKey<?> handle : keyHandles)
+				handle.refresh(value);
+		}
 	}
 
-	public synchronized <T> void setProperties(Map<String, T> properties) {
-		for (Entry<String, T> entry : properties.entrySet())
-			setProperty(entry.getKey(), entry.getValue());
+	private <T> ConfigKey<T> register(String key, ValueConverter<T> converter, T defaultValue) {
+		synchronized (lock) {
+			ConfigKey<T> handle;
+			try {
+				handle = new ConfigKey<>(key, converter, defaultValue, lookup(key));
+			} catch (NumberFormatException e) {
+				throw converter.describe(key, e);
+			}
+			List<ConfigKey<?>> keyHandles = handles.get(key);
+			if (keyHandles == null) {
+				keyHandles = new CopyOnWriteArrayList<>();
+				handles.put(key, keyHandles);
+			}
+			keyHandles.add(handle);
+			return handle;
+		}
 	}
 
-	public synchronized void setProperties(Properties properties) {
-		for (Object e : properties.keySet())
-			setProperty((String) e, properties.getProperty((String) e));
+	ValueCache getCache() {
+		return cache;
 	}
 
-	public synchronized void clearProperty(String key) {
-		System.clearProperty(key);
-		LOG.info("Unset configuration property: [{}]", key);
+	/**
+	 * Returns the lock serializing writers, so that tests can hold it.
+	 */
+	Object getLock() {
+		return lock;
 	}
 
 	/**
-	 * {@inheritDoc}
-	 * <p/>
-	 * <p>
-	 * The reset procedure restores configuration properties to their initial
-	 * values at the time of creation of the <tt>Configurable</tt> instance.
-	 * Configuration properties specified via a file are re-processed.
-	 * </p>
+	 * Returns the tracker of key usage, or null if usage is not tracked.
 	 */
-	public synchronized void reset() {
-		for (String key : Utils.propertiesToMap(getProperties()).keySet())
-			clearProperty(key);
-		init();
-		LOG.info("Configuration properties have been reset");
+	KeyUsageTracker getUsageTracker() {
+		return usage;
 	}
 
-	private synchronized String getKey(String key) {
-		String value = System.getProperty(key);
-		if (value == null)
-			throw new ConfigurationException(String.format("Unable to find configuration value for key [%s]", key));
+	/**
+	 * Returns the value of the given key, with its variable references
+	 * resolved in lazy substitution mode.
+	 */
+	private String lookup(String key) {
+		return snapshot.get(key);
+	}
+
+	String read(String key, ValueConverter<?> converter, int shape) {
+		String value = snapshot.get(key);
+		record(key, value, converter, shape);
 		return value;
 	}
+
+	/**
+	 * Records a read of the given key, from the current configuration or one
+	 * of its snapshots, by a getter of the given type and shape.
+	 */
+	void record(String key, String value, ValueConverter<?> converter, int shape) {
+		ConfigurationMetrics metrics = this.metrics;
+		metrics.recordRead(key);
+		if (value == null)
+			metrics.recordMiss(key);
+		KeyUsageTracker usage = this.usage;
+		if (usage != null && value != null)
+			usage.record(key, KeyUsageTracker.getter(converter, shape));
+	}
 }
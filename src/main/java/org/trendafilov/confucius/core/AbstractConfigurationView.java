@@ -0,0 +1,293 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.trendafilov.confucius.core;
+
+import java.util.List;
+
+import org.trendafilov.confucius.ConfigurationView;
+
+/**
+ * Implements the typed getters of a {@link ConfigurationView} on top of the
+ * raw values returned by {@link #read(String, ValueConverter, int)}.
+ * Conversions are memoized in the {@link ValueCache} of the configuration,
+ * per key and raw string, so a configuration and its snapshots share the
+ * converted values of the properties they have in common.
+ */
+abstract class AbstractConfigurationView implements ConfigurationView {
+	private final static String ITEM_SEPARATOR = ",";
+
+	public boolean getBooleanValue(String key) {
+		return getValue(key, ValueConverter.BOOLEAN);
+	}
+
+	public boolean getBooleanValue(String key, boolean defaultValue) {
+		String value = read(key, ValueConverter.BOOLEAN, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.BOOLEAN);
+	}
+
+	public List<Boolean> getBooleanList(String key, String separator) {
+		return getList(key, separator, ValueConverter.BOOLEAN);
+	}
+
+	public List<Boolean> getBooleanList(String key) {
+		return getBooleanList(key, ITEM_SEPARATOR);
+	}
+
+	public boolean[] getBooleanArray(String key, String separator) {
+		return ((boolean[]) getArray(key, separator, ValueConverter.BOOLEAN)).clone();
+	}
+
+	public boolean[] getBooleanArray(String key) {
+		return getBooleanArray(key, ITEM_SEPARATOR);
+	}
+
+	public byte getByteValue(String key) {
+		return getValue(key, ValueConverter.BYTE);
+	}
+
+	public byte getByteValue(String key, byte defaultValue) {
+		String value = read(key, ValueConverter.BYTE, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.BYTE);
+	}
+
+	public List<Byte> getByteList(String key, String separator) {
+		return getList(key, separator, ValueConverter.BYTE);
+	}
+
+	public List<Byte> getByteList(String key) {
+		return getByteList(key, ITEM_SEPARATOR);
+	}
+
+	public byte[] getByteArray(String key, String separator) {
+		return ((byte[]) getArray(key, separator, ValueConverter.BYTE)).clone();
+	}
+
+	public byte[] getByteArray(String key) {
+		return getByteArray(key, ITEM_SEPARATOR);
+	}
+
+	public char getCharValue(String key) {
+		return getValue(key, ValueConverter.CHAR);
+	}
+
+	public char getCharValue(String key, char defaultValue) {
+		String value = read(key, ValueConverter.CHAR, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.CHAR);
+	}
+
+	public List<Character> getCharList(String key, String separator) {
+		return getList(key, separator, ValueConverter.CHAR);
+	}
+
+	public List<Character> getCharList(String key) {
+		return getCharList(key, ITEM_SEPARATOR);
+	}
+
+	public char[] getCharArray(String key, String separator) {
+		return ((char[]) getArray(key, separator, ValueConverter.CHAR)).clone();
+	}
+
+	public char[] getCharArray(String key) {
+		return getCharArray(key, ITEM_SEPARATOR);
+	}
+
+	public double getDoubleValue(String key) {
+		return getValue(key, ValueConverter.DOUBLE);
+	}
+
+	public double getDoubleValue(String key, double defaultValue) {
+		String value = read(key, ValueConverter.DOUBLE, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.DOUBLE);
+	}
+
+	public List<Double> getDoubleList(String key, String separator) {
+		return getList(key, separator, ValueConverter.DOUBLE);
+	}
+
+	public List<Double> getDoubleList(String key) {
+		return getDoubleList(key, ITEM_SEPARATOR);
+	}
+
+	public double[] getDoubleArray(String key, String separator) {
+		return ((double[]) getArray(key, separator, ValueConverter.DOUBLE)).clone();
+	}
+
+	public double[] getDoubleArray(String key) {
+		return getDoubleArray(key, ITEM_SEPARATOR);
+	}
+
+	public float getFloatValue(String key) {
+		return getValue(key, ValueConverter.FLOAT);
+	}
+
+	public float getFloatValue(String key, float defaultValue) {
+		String value = read(key, ValueConverter.FLOAT, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.FLOAT);
+	}
+
+	public List<Float> getFloatList(String key, String separator) {
+		return getList(key, separator, ValueConverter.FLOAT);
+	}
+
+	public List<Float> getFloatList(String key) {
+		return getFloatList(key, ITEM_SEPARATOR);
+	}
+
+	public float[] getFloatArray(String key, String separator) {
+		return ((float[]) getArray(key, separator, ValueConverter.FLOAT)).clone();
+	}
+
+	public float[] getFloatArray(String key) {
+		return getFloatArray(key, ITEM_SEPARATOR);
+	}
+
+	public int getIntValue(String key) {
+		return getValue(key, ValueConverter.INT);
+	}
+
+	public int getIntValue(String key, int defaultValue) {
+		String value = read(key, ValueConverter.INT, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.INT);
+	}
+
+	public List<Integer> getIntList(String key, String separator) {
+		return getList(key, separator, ValueConverter.INT);
+	}
+
+	public List<Integer> getIntList(String key) {
+		return getIntList(key, ITEM_SEPARATOR);
+	}
+
+	public int[] getIntArray(String key, String separator) {
+		return ((int[]) getArray(key, separator, ValueConverter.INT)).clone();
+	}
+
+	public int[] getIntArray(String key) {
+		return getIntArray(key, ITEM_SEPARATOR);
+	}
+
+	public long getLongValue(String key) {
+		return getValue(key, ValueConverter.LONG);
+	}
+
+	public long getLongValue(String key, long defaultValue) {
+		String value = read(key, ValueConverter.LONG, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.LONG);
+	}
+
+	public List<Long> getLongList(String key, String separator) {
+		return getList(key, separator, ValueConverter.LONG);
+	}
+
+	public List<Long> getLongList(String key) {
+		return getLongList(key, ITEM_SEPARATOR);
+	}
+
+	public long[] getLongArray(String key, String separator) {
+		return ((long[]) getArray(key, separator, ValueConverter.LONG)).clone();
+	}
+
+	public long[] getLongArray(String key) {
+		return getLongArray(key, ITEM_SEPARATOR);
+	}
+
+	public short getShortValue(String key) {
+		return getValue(key, ValueConverter.SHORT);
+	}
+
+	public short getShortValue(String key, short defaultValue) {
+		String value = read(key, ValueConverter.SHORT, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : convert(key, value, ValueConverter.SHORT);
+	}
+
+	public List<Short> getShortList(String key, String separator) {
+		return getList(key, separator, ValueConverter.SHORT);
+	}
+
+	public List<Short> getShortList(String key) {
+		return getShortList(key, ITEM_SEPARATOR);
+	}
+
+	public short[] getShortArray(String key, String separator) {
+		return ((short[]) getArray(key, separator, ValueConverter.SHORT)).clone();
+	}
+
+	public short[] getShortArray(String key) {
+		return getShortArray(key, ITEM_SEPARATOR);
+	}
+
+	public String getStringValue(String key) {
+		return getKey(key, ValueConverter.STRING, KeyUsageTracker.VALUE);
+	}
+
+	public String getStringValue(String key, String defaultValue) {
+		String value = read(key, ValueConverter.STRING, KeyUsageTracker.VALUE);
+		return value == null ? defaultValue : value;
+	}
+
+	public List<String> getStringList(String key, String separator) {
+		return getList(key, separator, ValueConverter.STRING);
+	}
+
+	public List<String> getStringList(String key) {
+		return getStringList(key, ITEM_SEPARATOR);
+	}
+
+	/**
+	 * Returns the value of a key read by a getter, or null if it is not set,
+	 * recording the read with the type and shape the getter returns.
+	 */
+	abstract String read(String key, ValueConverter<?> converter, int shape);
+
+	abstract ValueCache getCache();
+
+	private <T> T getValue(String key, ValueConverter<T> converter) {
+		return convert(key, getKey(key, converter, KeyUsageTracker.VALUE), converter);
+	}
+
+	private <T> T convert(String key, String value, ValueConverter<T> converter) {
+		try {
+			return getCache().get(key, value, converter);
+		} catch (NumberFormatException e) {
+			throw converter.describe(key, e);
+		}
+	}
+
+	private <T> List<T> getList(String key, String separator, ValueConverter<T> converter) {
+		try {
+			return getCache().getList(key, getKey(key, converter, KeyUsageTracker.LIST), separator, converter);
+		} catch (NumberFormatException e) {
+			throw converter.describe(key, e);
+		}
+	}
+
+	private <T> Object getArray(String key, String separator, ValueConverter<T> converter) {
+		try {
+			return getCache().getArray(key, getKey(key, converter, KeyUsageTracker.ARRAY), separator, converter);
+		} catch (NumberFormatException e) {
+			throw converter.describe(key, e);
+		}
+	}
+
+	private String getKey(String key, ValueConverter<?> converter, int shape) {
+		String value = read(key, converter, shape);
+		if (value == null)
+			throw new ConfigurationException(String.format("Unable to find configuration value for key [%s]", key));
+		return value;
+	}
+}
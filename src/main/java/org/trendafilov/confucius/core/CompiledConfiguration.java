@@ -0,0 +1,283 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores parsed configurations in a compact binary form next to their source
+ * file, so that later runs can skip parsing.
+ * <p/>
+ * <p>
+ * The compiled file holds the views of all contexts, with every distinct
+ * string written once, and is memory-mapped when read. It records the size,
+ * modification time and checksum of the source, and is ignored if any of
+ * them no longer match, or if it was compiled for the other substitution
+ * mode. Compiled files are a cache: failing to read or write one is logged
+ * and the source is parsed instead.
+ * </p>
+ */
+class CompiledConfiguration {
+	private final static Logger LOG = LoggerFactory.getLogger(CompiledConfiguration.class);
+
+	private final static String SUFFIX = ".compiled";
+	private final static int MAGIC = 0x43464743;
+	private final static int VERSION = 1;
+	private final static byte VIEW = 0;
+	private final static byte ERROR = 1;
+
+	private CompiledConfiguration() {
+	}
+
+	/**
+	 * Returns the configuration compiled from the given source if it is up to
+	 * date, or otherwise parses the source and compiles it.
+	 */
+	static Parser load(Path source, ConfigurationDataProvider provider, boolean substitute) {
+		Path compiled = compiledPath(source);
+		Source attributes;
+		try {
+			attributes = Source.of(source);
+		} catch (IOException e) {
+			return new Parser(provider, null, substitute);
+		}
+		Parser parser = read(compiled, attributes, substitute);
+		if (parser != null) {
+			LOG.debug("Loaded compiled configuration [{}]", compiled);
+			return parser;
+		}
+		parser = new Parser(provider, null, substitute);
+		write(compiled, attributes, substitute, parser);
+		return parser;
+	}
+
+	static Path compiledPath(Path source) {
+		return source.resolveSibling(source.getFileName() + SUFFIX);
+	}
+
+	/**
+	 * Returns the compiled configuration, or null if it is missing, stale or
+	 * unreadable. Lengths and string references are checked before they are
+	 * used, so a truncated or corrupt file is treated as stale rather than
+	 * allocating whatever size it claims.
+	 */
+	static Parser read(Path compiled, Source source, boolean substitute) {
+		try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || (buffer.get() == 1) != substitute)
+				return null;
+			if (!source.equals(new Source(buffer.getLong(), buffer.getLong(), buffer.getLong())))
+				return null;
+			String[] strings = new String[count(buffer, 4)];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[count(buffer, 1)];
+				buffer.get(bytes);
+				strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			Map<String, String> defaultView = readView(buffer, strings);
+			Map<String, Map<String, String>> contexts = new LinkedHashMap<>();
+			Map<String, String> errors = new HashMap<>();
+			int count = count(buffer, 5);
+			for (int i = 0; i < count; i++) {
+				String name = string(buffer, strings);
+				if (buffer.get() == VIEW)
+					contexts.put(name, readView(buffer, strings));
+				else
+					errors.put(name, string(buffer, strings));
+			}
+			return new Parser(defaultView, contexts, errors, source.checksum, null);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("Ignoring unreadable compiled configuration [{}]: {}", compiled, e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the compiled configuration to a temporary file which then
+	 * replaces the previous one, so that readers never see a partial file.
+	 */
+	static void write(Path compiled, Source source, boolean substitute, Parser parser) {
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		Map<String, String> defaultView = parser.getConfiguration(null);
+		index(strings, defaultView);
+		Map<String, Map<String, String>> contexts = new LinkedHashMap<>();
+		Map<String, String> errors = new HashMap<>();
+		for (String name : parser.getContexts()) {
+			index(strings, name);
+			try {
+				Map<String, String> view = parser.getConfiguration(name);
+				index(strings, view);
+				contexts.put(name, view);
+			} catch (ConfigurationException e) {
+				index(strings, e.getMessage());
+				errors.put(name, e.getMessage());
+			}
+		}
+		Path temporary = null;
+		try {
+			temporary = Files.createTempFile(compiled.toAbsolutePath().getParent(), compiled.getFileName().toString(), ".tmp");
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeByte(substitute ? 1 : 0);
+				output.writeLong(source.size);
+				output.writeLong(source.modified);
+				output.writeLong(source.checksum);
+				output.writeInt(strings.size());
+				for (String string : strings.keySet()) {
+					byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+					output.writeInt(bytes.length);
+					output.write(bytes);
+				}
+				writeView(output, strings, defaultView);
+				output.writeInt(contexts.size() + errors.size());
+				for (String name : parser.getContexts()) {
+					output.writeInt(strings.get(name));
+					if (contexts.containsKey(name)) {
+						output.writeByte(VIEW);
+						writeView(output, strings, contexts.get(name));
+					} else {
+						output.writeByte(ERROR);
+						output.writeInt(strings.get(errors.get(name)));
+					}
+				}
+			}
+			try {
+				Files.move(temporary, compiled, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, compiled, StandardCopyOption.REPLACE_EXISTING);
+			}
+			LOG.debug("Compiled configuration into [{}]", compiled);
+		} catch (IOException e) {
+			LOG.warn("Unable to write compiled configuration [{}]: {}", compiled, e.toString());
+			try {
+				if (temporary != null)
+					Files.deleteIfExists(temporary);
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private static void index(Map<String, Integer> strings, Map<String, String> view) {
+		for (Entry<String, String> entry : view.entrySet()) {
+			index(strings, entry.getKey());
+			index(strings, entry.getValue());
+		}
+	}
+
+	private static void index(Map<String, Integer> strings, String string) {
+		if (!strings.containsKey(string))
+			strings.put(string, strings.size());
+	}
+
+	private static void writeView(DataOutputStream output, Map<String, Integer> strings, Map<String, String> view) throws IOException {
+		output.writeInt(view.size());
+		for (Entry<String, String> entry : view.entrySet()) {
+			output.writeInt(strings.get(entry.getKey()));
+			output.writeInt(strings.get(entry.getValue()));
+		}
+	}
+
+	private static Map<String, String> readView(ByteBuffer buffer, String[] strings) throws IOException {
+		int size = count(buffer, 8);
+		Map<String, String> view = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+		for (int i = 0; i < size; i++)
+			view.put(string(buffer, strings), string(buffer, strings));
+		return view;
+	}
+
+	/**
+	 * Reads the number of the items which follow, each taking at least the
+	 * given number of bytes.
+	 * 
+	 * @throws IOException
+	 *             if the remaining bytes cannot hold that many items
+	 */
+	private static int count(ByteBuffer buffer, int bytes) throws IOException {
+		int count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining() / bytes)
+			throw new IOException(String.format("Invalid length %d at offset %d", count, buffer.position() - 4));
+		return count;
+	}
+
+	/**
+	 * Reads a reference to the string table.
+	 * 
+	 * @throws IOException
+	 *             if the reference is outside of the table
+	 */
+	private static String string(ByteBuffer buffer, String[] strings) throws IOException {
+		int index = buffer.getInt();
+		if (index < 0 || index >= strings.length)
+			throw new IOException(String.format("Invalid string reference %d at offset %d", index, buffer.position() - 4));
+		return strings[index];
+	}
+
+	/**
+	 * The attributes of a source file which a compiled configuration must
+	 * match.
+	 */
+	static final class Source {
+		private final long size;
+		private final long modified;
+		private final long checksum;
+
+		Source(long size, long modified, long checksum) {
+			this.size = size;
+			this.modified = modified;
+			this.checksum = checksum;
+		}
+
+		static Source of(Path source) throws IOException {
+			return new Source(Files.size(source), Files.getLastModifiedTime(source).toMillis(), Utils.checksum(source));
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Source))
+				return false;
+			Source that = (Source) other;
+			return size == that.size && modified == that.modified && checksum == that.checksum;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (size ^ modified ^ checksum);
+		}
+	}
+}
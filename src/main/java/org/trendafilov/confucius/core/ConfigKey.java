@@ -0,0 +1,103 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A typed handle to a single configuration property.
+ * <p>
+ * The converted value is held in a volatile field and refreshed by the owning
+ * configuration whenever the property is set, cleared, reset or reloaded, so
+ * {@link #get()} involves no lookup or parsing. Handles are obtained from the
+ * <tt>xxxKey</tt> factory methods of a <tt>Configurable</tt> and are
+ * typically stored in a static final field.
+ * </p>
+ * 
+ * @param <T>
+ *            the type of the configuration value
+ */
+public final class ConfigKey<T> {
+	private final static Logger LOG = LoggerFactory.getLogger(ConfigKey.class);
+
+	private final String key;
+	private final ValueConverter<T> converter;
+	private final T defaultValue;
+	private volatile T value;
+
+	ConfigKey(String key, ValueConverter<T> converter, T defaultValue, String raw) {
+		this.key = key;
+		this.converter = converter;
+		this.defaultValue = defaultValue;
+		this.value = raw == null ? defaultValue : converter.convert(raw);
+	}
+
+	/**
+	 * Returns the current value of the configuration property, or the default
+	 * value if the property is missing.
+	 * 
+	 * @return the current value
+	 */
+	public T get() {
+		return value;
+	}
+
+	/**
+	 * Returns the name of the configuration property.
+	 * 
+	 * @return the key
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the value used when the configuration property is missing.
+	 * 
+	 * @return the default value
+	 */
+	public T getDefaultValue() {
+		return defaultValue;
+	}
+
+	void refresh(String raw) {
+		if (raw == null) {
+			value = defaultValue;
+			return;
+		}
+		try {
+			value = converter.convert(raw);
+		} catch (RuntimeException e) {
+			LOG.warn("Keeping previous value of configuration property [{}], unable to convert [{}]", key, raw);
+		}
+	}
+
+	boolean accepts(String raw) {
+		try {
+			converter.convert(raw);
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return key + "=" + value;
+	}
+}
@@ -0,0 +1,80 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of changed configuration properties delivered to a
+ * {@link ConfigurationListener}.
+ */
+public final class ConfigurationChange {
+	private final Map<String, String> changes;
+
+	ConfigurationChange(Map<String, String> changes) {
+		this.changes = Collections.unmodifiableMap(changes);
+	}
+
+	/**
+	 * Returns the keys of all changed properties, including removed ones.
+	 * 
+	 * @return the changed keys
+	 */
+	public Set<String> keySet() {
+		return changes.keySet();
+	}
+
+	/**
+	 * Returns the changed properties mapped to their new values. Removed
+	 * properties are mapped to <tt>null</tt>.
+	 * 
+	 * @return the changed properties
+	 */
+	public Map<String, String> getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Returns the new value of the specified property, or <tt>null</tt> if the
+	 * property was removed or is not part of this change.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return the new value
+	 */
+	public String getValue(String key) {
+		return changes.get(key);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the specified property was removed.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return whether the property was removed
+	 */
+	public boolean isRemoved(String key) {
+		return changes.containsKey(key) && changes.get(key) == null;
+	}
+
+	@Override
+	public String toString() {
+		return changes.toString();
+	}
+}
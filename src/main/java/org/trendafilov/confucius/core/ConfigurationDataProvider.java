@@ -18,10 +18,30 @@ package org.trendafilov.confucius.core;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 interface ConfigurationDataProvider {
 	List<String> getAllLines() throws IOException;
 
 	InputStream getInputStream() throws IOException;
+
+	/**
+	 * Reads the whole configuration source once. The returned buffer is
+	 * positioned at the first byte and must not be modified.
+	 */
+	ByteBuffer getContent() throws IOException;
+
+	/**
+	 * Returns the content decoded as UTF-8. How malformed input is handled is
+	 * up to the provider.
+	 */
+	CharSequence getText() throws IOException;
+
+	/**
+	 * Decodes content read by {@link #getContent()} the way
+	 * {@link #getText()} does, so that the bytes can be checksummed and
+	 * parsed without reading the source twice.
+	 */
+	CharSequence decode(ByteBuffer content) throws IOException;
 }
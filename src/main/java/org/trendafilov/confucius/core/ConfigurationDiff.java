@@ -0,0 +1,126 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * The differences between two states of a configuration: the properties that
+ * were added, the properties whose values changed, and the properties that
+ * were removed.
+ */
+public final class ConfigurationDiff {
+	private final Map<String, String> added;
+	private final Map<String, String> changed;
+	private final Set<String> removed;
+
+	private ConfigurationDiff(Map<String, String> added, Map<String, String> changed, Set<String> removed) {
+		this.added = Collections.unmodifiableMap(added);
+		this.changed = Collections.unmodifiableMap(changed);
+		this.removed = Collections.unmodifiableSet(removed);
+	}
+
+	/**
+	 * Classifies the given changes against the previous state. Keys mapped to
+	 * <tt>null</tt> are removals; changes which do not alter the previous
+	 * state are ignored.
+	 */
+	static ConfigurationDiff of(Map<String, String> previous, Map<String, String> changes) {
+		Map<String, String> added = new HashMap<>();
+		Map<String, String> changed = new HashMap<>();
+		Set<String> removed = new HashSet<>();
+		for (Entry<String, String> change : changes.entrySet()) {
+			String before = previous.get(change.getKey());
+			if (change.getValue() == null) {
+				if (before != null)
+					removed.add(change.getKey());
+			} else if (before == null) {
+				added.put(change.getKey(), change.getValue());
+			} else if (!before.equals(change.getValue())) {
+				changed.put(change.getKey(), change.getValue());
+			}
+		}
+		return new ConfigurationDiff(added, changed, removed);
+	}
+
+	/**
+	 * Returns the added properties mapped to their values.
+	 * 
+	 * @return the added properties
+	 */
+	public Map<String, String> getAdded() {
+		return added;
+	}
+
+	/**
+	 * Returns the changed properties mapped to their new values.
+	 * 
+	 * @return the changed properties
+	 */
+	public Map<String, String> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * Returns the keys of the removed properties.
+	 * 
+	 * @return the removed keys
+	 */
+	public Set<String> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if no property was added, changed or removed.
+	 * 
+	 * @return whether the states are identical
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the number of added, changed and removed properties.
+	 * 
+	 * @return the number of differences
+	 */
+	public int size() {
+		return added.size() + changed.size() + removed.size();
+	}
+
+	/**
+	 * Returns the differences as changes to apply, with removed keys mapped
+	 * to <tt>null</tt>.
+	 */
+	Map<String, String> toChanges() {
+		Map<String, String> changes = new HashMap<>(added);
+		changes.putAll(changed);
+		for (String key : removed)
+			changes.put(key, null);
+		return changes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("added %s, changed %s, removed %s", added.keySet(), changed.keySet(), removed);
+	}
+}
@@ -0,0 +1,33 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+/**
+ * Receives the changes made to configuration properties matching the key or
+ * prefix the listener was registered for.
+ */
+public interface ConfigurationListener {
+
+	/**
+	 * Invoked asynchronously after matching properties have changed. Changes
+	 * published in quick succession may be coalesced into a single call.
+	 * 
+	 * @param change
+	 *            the changed properties
+	 */
+	void onChange(ConfigurationChange change);
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+/**
+ * Receives measurements of the operations of a configuration. Register an
+ * implementation with {@link AbstractConfiguration#setMetrics}; by default,
+ * measurements are discarded by {@link #NONE}.
+ * <p/>
+ * <p>
+ * Methods are called on the thread performing the operation, reads included,
+ * so implementations must be thread-safe and cheap. Values read through
+ * {@link ConfigKey} handles do not touch the configuration and are not
+ * counted.
+ * </p>
+ * 
+ * @see InMemoryConfigurationMetrics
+ */
+public interface ConfigurationMetrics {
+	/**
+	 * Discards all measurements.
+	 */
+	ConfigurationMetrics NONE = new ConfigurationMetrics() {
+		public void recordRead(String key) {
+		}
+
+		public void recordMiss(String key) {
+		}
+
+		public void recordWrite(int properties) {
+		}
+
+		public void recordParse(long nanos) {
+		}
+
+		public void recordReload(long nanos) {
+		}
+
+		public void recordReset(long lockNanos) {
+		}
+	};
+
+	/**
+	 * Called when a getter reads the value of a key.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 */
+	void recordRead(String key);
+
+	/**
+	 * Called when a getter reads a key which is not set, in addition to
+	 * {@link #recordRead}.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 */
+	void recordMiss(String key);
+
+	/**
+	 * Called when properties are set or cleared at runtime.
+	 * 
+	 * @param properties
+	 *            the number of properties written at once
+	 */
+	void recordWrite(int properties);
+
+	/**
+	 * Called when the configuration file or stream has been parsed.
+	 * 
+	 * @param nanos
+	 *            the time spent parsing
+	 */
+	void recordParse(long nanos);
+
+	/**
+	 * Called when the configuration file has been reloaded, or the active
+	 * context switched.
+	 * 
+	 * @param nanos
+	 *            the time spent, parsing included
+	 */
+	void recordReload(long nanos);
+
+	/**
+	 * Called when the configuration, or one of its layers, has been reset.
+	 * 
+	 * @param lockNanos
+	 *            the time writers were locked out while the new state was
+	 *            applied, not including parsing
+	 */
+	void recordReset(long lockNanos);
+}
@@ -0,0 +1,309 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * An immutable version of a configuration. Every change to a configuration
+ * publishes a new version with the next version number; a snapshot keeps
+ * returning the values of its own version, so all reads made through it, for
+ * instance during a single request, are consistent with each other.
+ * Snapshots share their unchanged properties, so keeping one costs little.
+ * Reads through a snapshot are reported to the metrics and key usage of its
+ * configuration, and share its cache of converted values.
+ */
+public final class ConfigurationSnapshot extends AbstractConfigurationView implements Iterable<Map.Entry<String, String>> {
+	static final ConfigurationSnapshot EMPTY = new ConfigurationSnapshot(0, PersistentMap.<String> empty(), KeyIndex.EMPTY, null, null);
+
+	private final long version;
+	private final PersistentMap<String> properties;
+	private final KeyIndex index;
+	private final LazySubstitution.State substitution;
+	private final AbstractConfiguration owner;
+	private final Set<String> keySet;
+
+	/**
+	 * Creates a snapshot whose reads are recorded, and whose conversions are
+	 * cached, by the given configuration, if any.
+	 */
+	ConfigurationSnapshot(long version, PersistentMap<String> properties, KeyIndex index, LazySubstitution.State substitution,
+			AbstractConfiguration owner) {
+		this.version = version;
+		this.properties = properties;
+		this.index = index;
+		this.substitution = substitution;
+		this.owner = owner;
+		this.keySet = Collections.unmodifiableSet(properties.keySet());
+	}
+
+	/**
+	 * Returns the version number of this snapshot.
+	 * 
+	 * @return the version number
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the keys of all properties in this snapshot. The set is a
+	 * read-only view, not a copy.
+	 * 
+	 * @return a read-only set of keys
+	 */
+	public Set<String> keySet() {
+		return keySet;
+	}
+
+	/**
+	 * Returns an iterator over the properties in this snapshot, in no
+	 * particular order. The properties are read from the snapshot as the
+	 * iteration proceeds, without copying them first. The iterator does not
+	 * support removal.
+	 * 
+	 * @return an iterator over the properties
+	 */
+	public Iterator<Map.Entry<String, String>> iterator() {
+		final KeyUsageTracker usage = usage();
+		if (substitution == null && usage == null)
+			return properties.entrySet().iterator();
+		final Iterator<String> keys = keySet.iterator();
+		return new Iterator<Map.Entry<String, String>>() {
+			public boolean hasNext() {
+				return keys.hasNext();
+			}
+
+			public Map.Entry<String, String> next() {
+				String key = keys.next();
+				if (usage != null)
+					usage.record(key, KeyUsageTracker.ITERATION);
+				return new AbstractMap.SimpleImmutableEntry<>(key, get(key));
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the keys starting with the given prefix, in ascending order.
+	 * The set is a read-only view found in O(log n) rather than a copy; use a
+	 * trailing separator, as in <tt>db.pool.</tt>, to select a group of keys.
+	 * 
+	 * @param prefix
+	 *            of the keys, or an empty string for all keys
+	 * @return a read-only set of keys
+	 */
+	public Set<String> getSubset(String prefix) {
+		final Set<String> keys = index.withPrefix(prefix);
+		final KeyUsageTracker usage = usage();
+		if (usage == null)
+			return keys;
+		return new AbstractSet<String>() {
+			public Iterator<String> iterator() {
+				final Iterator<String> iterator = keys.iterator();
+				return new Iterator<String>() {
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					public String next() {
+						String key = iterator.next();
+						usage.record(key, KeyUsageTracker.SUBSET);
+						return key;
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			public boolean contains(Object key) {
+				return keys.contains(key);
+			}
+
+			public int size() {
+				return keys.size();
+			}
+		};
+	}
+
+	/**
+	 * Returns the properties whose keys start with the given prefix, in
+	 * ascending order of keys. The map is a read-only view, as with
+	 * {@link #getSubset(String)}.
+	 * 
+	 * @param prefix
+	 *            of the keys, or an empty string for all keys
+	 * @return a read-only map of the properties
+	 */
+	public Map<String, String> getSubsetAsMap(final String prefix) {
+		final Set<String> keys = index.withPrefix(prefix);
+		final KeyUsageTracker usage = usage();
+		final Set<Map.Entry<String, String>> entries = new AbstractSet<Map.Entry<String, String>>() {
+			public Iterator<Map.Entry<String, String>> iterator() {
+				final Iterator<String> iterator = keys.iterator();
+				return new Iterator<Map.Entry<String, String>>() {
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					public Map.Entry<String, String> next() {
+						String key = iterator.next();
+						if (usage != null)
+							usage.record(key, KeyUsageTracker.SUBSET_MAP);
+						return new AbstractMap.SimpleImmutableEntry<>(key, get(key));
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			public int size() {
+				return keys.size();
+			}
+		};
+		return new AbstractMap<String, String>() {
+			public Set<Map.Entry<String, String>> entrySet() {
+				return entries;
+			}
+
+			public Set<String> keySet() {
+				return keys;
+			}
+
+			public boolean containsKey(Object key) {
+				return keys.contains(key);
+			}
+
+			public String get(Object key) {
+				if (!keys.contains(key))
+					return null;
+				if (usage != null)
+					usage.record((String) key, KeyUsageTracker.SUBSET_MAP);
+				return ConfigurationSnapshot.this.get((String) key);
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of properties in this snapshot.
+	 * 
+	 * @return the number of properties
+	 */
+	public int size() {
+		return properties.size();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the specified property is set in this
+	 * snapshot.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return whether the property is set
+	 */
+	public boolean containsKey(String key) {
+		return properties.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * <p>
+	 * The copy holds the properties of this snapshot, with their references
+	 * resolved in lazy substitution mode.
+	 * </p>
+	 */
+	public Properties getProperties() {
+		Properties copy = new Properties();
+		if (substitution == null) {
+			copy.putAll(properties);
+		} else {
+			for (String key : keySet)
+				copy.put(key, get(key));
+		}
+		KeyUsageTracker usage = usage();
+		if (usage != null)
+			for (String key : keySet)
+				usage.record(key, KeyUsageTracker.PROPERTIES);
+		return copy;
+	}
+
+	/**
+	 * Returns the differences between this snapshot and the given one, as
+	 * changes that turn this snapshot into the given one. Only the parts of
+	 * the two snapshots that differ are visited, so the cost is proportional
+	 * to the number of changes rather than to the size of the configuration.
+	 * In lazy substitution mode, the values are compared as they were set,
+	 * with their references unresolved.
+	 * 
+	 * @param other
+	 *            the later snapshot
+	 * @return the changes between the two snapshots
+	 */
+	public ConfigurationDiff diff(ConfigurationSnapshot other) {
+		return ConfigurationDiff.of(properties, properties.diff(other.properties));
+	}
+
+	PersistentMap<String> getPropertyMap() {
+		return properties;
+	}
+
+	KeyIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the value of the given key, with its variable references
+	 * resolved in lazy substitution mode.
+	 */
+	String get(String key) {
+		return substitution == null ? properties.get(key) : substitution.get(key);
+	}
+
+	String read(String key, ValueConverter<?> converter, int shape) {
+		String value = get(key);
+		if (owner != null)
+			owner.record(key, value, converter, shape);
+		return value;
+	}
+
+	ValueCache getCache() {
+		return owner == null ? ValueCache.DISABLED : owner.getCache();
+	}
+
+	private KeyUsageTracker usage() {
+		return owner == null ? null : owner.getUsageTracker();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("version %d, %d properties", version, properties.size());
+	}
+}
@@ -0,0 +1,94 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Collects the changes of a batch update. None of the changes are visible to
+ * readers until the whole batch has been validated and published.
+ * 
+ * @see ConfigurationUpdate
+ */
+public final class ConfigurationTransaction {
+	private final Map<String, String> changes = new LinkedHashMap<>();
+
+	ConfigurationTransaction() {
+	}
+
+	/**
+	 * Sets the configuration property indicated by the specified key as part
+	 * of this batch.
+	 * 
+	 * @param key
+	 *            the name of the configuration property
+	 * @param value
+	 *            the value of the configuration property
+	 * @return this transaction
+	 */
+	public <T> ConfigurationTransaction setProperty(String key, T value) {
+		checkKey(key);
+		if (value == null)
+			throw new ConfigurationException(String.format("Configuration value for key [%s] cannot be null", key));
+		changes.put(key, value.toString());
+		return this;
+	}
+
+	/**
+	 * Sets the configuration properties indicated by the specified map as part
+	 * of this batch.
+	 * 
+	 * @param properties
+	 *            a map of configuration properties
+	 * @return this transaction
+	 */
+	public <T> ConfigurationTransaction setProperties(Map<String, T> properties) {
+		for (Entry<String, T> entry : properties.entrySet())
+			setProperty(entry.getKey(), entry.getValue());
+		return this;
+	}
+
+	/**
+	 * Removes the configuration property indicated by the specified key as
+	 * part of this batch.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return this transaction
+	 */
+	public ConfigurationTransaction clearProperty(String key) {
+		checkKey(key);
+		changes.put(key, null);
+		return this;
+	}
+
+	/**
+	 * Returns the pending changes in the order they were made. Cleared
+	 * properties are mapped to <tt>null</tt>.
+	 */
+	Map<String, String> getChanges() {
+		return Collections.unmodifiableMap(changes);
+	}
+
+	private void checkKey(String key) {
+		if (key == null || key.isEmpty())
+			throw new ConfigurationException("Configuration key cannot be null or empty");
+	}
+}
@@ -0,0 +1,32 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+/**
+ * A batch of configuration changes, applied atomically via
+ * {@code Configurable.update(ConfigurationUpdate)}.
+ */
+public interface ConfigurationUpdate {
+
+	/**
+	 * Records the changes of the batch on the given transaction.
+	 * 
+	 * @param transaction
+	 *            collects the changes to publish
+	 */
+	void apply(ConfigurationTransaction transaction);
+}
@@ -16,16 +16,18 @@
 
 package org.trendafilov.confucius.core;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 class FileConfigurationDataProvider implements ConfigurationDataProvider {
+	private final static long MAP_THRESHOLD = 64 * 1024;
+
 	private final String filename;
 
 	public FileConfigurationDataProvider(String filename) {
@@ -33,10 +35,41 @@ class FileConfigurationDataProvider implements ConfigurationDataProvider {
 	}
 
 	public List<String> getAllLines() throws IOException {
-		return filename == null ? new ArrayList<String>() : Files.readAllLines(new File(filename).toPath(), Charset.forName("UTF-8"));
+		return Utils.lines(getText());
+	}
+
+	/**
+	 * Malformed input is rejected, as with {@link java.nio.file.Files#readAllLines}.
+	 */
+	public CharSequence getText() throws IOException {
+		return decode(getContent());
+	}
+
+	public CharSequence decode(ByteBuffer content) throws IOException {
+		return Utils.decode(content);
 	}
 
 	public InputStream getInputStream() throws IOException {
-		return new FileInputStream(filename);
+		return new ByteBufferInputStream(getContent());
+	}
+
+	/**
+	 * Files of 64K and above are memory-mapped, smaller ones are read into a
+	 * heap buffer in a single call, which is cheaper than setting up a
+	 * mapping.
+	 */
+	public ByteBuffer getContent() throws IOException {
+		if (filename == null)
+			return ByteBuffer.allocate(0);
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size >= MAP_THRESHOLD)
+				return channel.map(MapMode.READ_ONLY, 0, size);
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+				;
+			buffer.flip();
+			return buffer;
+		}
 	}
 }
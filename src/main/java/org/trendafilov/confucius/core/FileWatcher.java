@@ -0,0 +1,125 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a configuration file and runs a reload once writes to the file
+ * have settled.
+ * <p>
+ * Events are debounced: after the first change, the watcher waits until no
+ * further change has been seen for the debounce interval. The reload is then
+ * skipped if the checksum of the file content is that of the content last
+ * loaded, e.g. when an editor rewrote the file without modifying it. The
+ * reload reports the checksum of the content it loaded through
+ * {@link #loaded(long)}.
+ * </p>
+ */
+class FileWatcher implements Runnable {
+	private final static Logger LOG = LoggerFactory.getLogger(FileWatcher.class);
+
+	private final Path file;
+	private final long debounceMillis;
+	private final Runnable reload;
+	private final WatchService watchService;
+	private final Thread thread;
+	private volatile long checksum;
+
+	/**
+	 * @param checksum
+	 *            of the content the configuration was loaded from
+	 */
+	FileWatcher(Path file, long debounceMillis, Runnable reload, long checksum) throws IOException {
+		this.file = file.toAbsolutePath();
+		this.debounceMillis = debounceMillis;
+		this.reload = reload;
+		this.checksum = checksum;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		this.thread = new Thread(this, "confucius-watcher");
+		this.thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+		LOG.info("Watching configuration file [{}] for changes", file);
+	}
+
+	/**
+	 * Records the checksum of the content the configuration was loaded from.
+	 */
+	void loaded(long checksum) {
+		this.checksum = checksum;
+	}
+
+	void stop() {
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			LOG.warn("Unable to close watch service for [{}]", file, e);
+		}
+	}
+
+	public void run() {
+		try {
+			while (true) {
+				if (!isRelevant(watchService.take()))
+					continue;
+				WatchKey next;
+				while ((next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null)
+					isRelevant(next);
+				reloadIfChanged();
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			LOG.info("Stopped watching configuration file [{}]", file);
+		}
+	}
+
+	private boolean isRelevant(WatchKey key) {
+		boolean relevant = false;
+		for (WatchEvent<?> event : key.pollEvents())
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context()))
+				relevant = true;
+		key.reset();
+		return relevant;
+	}
+
+	private void reloadIfChanged() {
+		try {
+			long current = Utils.checksum(file);
+			if (current == checksum) {
+				LOG.debug("Configuration file [{}] content is unchanged", file);
+				return;
+			}
+			reload.run();
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("Unable to reload configuration file [{}]", file, e);
+		}
+	}
+}
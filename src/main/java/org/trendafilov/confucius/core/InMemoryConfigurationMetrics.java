@@ -0,0 +1,184 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Keeps counters and latency totals in memory, to be scraped with
+ * {@link #snapshot()}. Recording uses {@link LongAdder}s, so concurrent
+ * readers do not contend on a shared counter.
+ */
+public class InMemoryConfigurationMetrics implements ConfigurationMetrics {
+	private final LongAdder reads = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder writes = new LongAdder();
+	private final Timer parses = new Timer();
+	private final Timer reloads = new Timer();
+	private final Timer resets = new Timer();
+
+	public void recordRead(String key) {
+		reads.increment();
+	}
+
+	public void recordMiss(String key) {
+		misses.increment();
+	}
+
+	public void recordWrite(int properties) {
+		writes.add(properties);
+	}
+
+	public void recordParse(long nanos) {
+		parses.record(nanos);
+	}
+
+	public void recordReload(long nanos) {
+		reloads.record(nanos);
+	}
+
+	public void recordReset(long lockNanos) {
+		resets.record(lockNanos);
+	}
+
+	/**
+	 * Returns the number of values read by getters.
+	 */
+	public long getReads() {
+		return reads.sum();
+	}
+
+	/**
+	 * Returns the number of reads of keys which were not set.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of properties set or cleared at runtime.
+	 */
+	public long getWrites() {
+		return writes.sum();
+	}
+
+	/**
+	 * Returns the time spent parsing the configuration.
+	 */
+	public Timer getParses() {
+		return parses;
+	}
+
+	/**
+	 * Returns the time spent reloading the configuration or switching its
+	 * context.
+	 */
+	public Timer getReloads() {
+		return reloads;
+	}
+
+	/**
+	 * Returns the time writers were locked out by resets.
+	 */
+	public Timer getResets() {
+		return resets;
+	}
+
+	/**
+	 * Returns all measurements by name, e.g. <tt>reads</tt> or
+	 * <tt>parse.time.max</tt>, with times in nanoseconds.
+	 * 
+	 * @return the current measurements, in a stable order
+	 */
+	public Map<String, Long> snapshot() {
+		Map<String, Long> values = new LinkedHashMap<>();
+		values.put("reads", getReads());
+		values.put("misses", getMisses());
+		values.put("writes", getWrites());
+		parses.snapshot("parse", values);
+		reloads.snapshot("reload", values);
+		resets.snapshot("reset.lock", values);
+		return values;
+	}
+
+	/**
+	 * Sets all measurements back to zero.
+	 */
+	public void clear() {
+		reads.reset();
+		misses.reset();
+		writes.reset();
+		parses.clear();
+		reloads.clear();
+		resets.clear();
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	/**
+	 * The number, total and maximum duration of an operation.
+	 */
+	public static final class Timer {
+		private final static LongBinaryOperator MAX = new LongBinaryOperator() {
+			public long applyAsLong(long left, long right) {
+				return Math.max(left, right);
+			}
+		};
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(MAX, 0);
+
+		void record(long nanos) {
+			count.increment();
+			total.add(nanos);
+			max.accumulate(nanos);
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getTotal(TimeUnit unit) {
+			return unit.convert(total.sum(), TimeUnit.NANOSECONDS);
+		}
+
+		public long getMax(TimeUnit unit) {
+			return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+		}
+
+		void snapshot(String name, Map<String, Long> values) {
+			values.put(name + ".count", getCount());
+			values.put(name + ".time.total", total.sum());
+			values.put(name + ".time.max", max.get());
+		}
+
+		void clear() {
+			count.reset();
+			total.reset();
+			max.reset();
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable sorted index of configuration keys, kept next to the
+ * {@link PersistentMap} of a snapshot so that the keys sharing a prefix can
+ * be found without scanning every key. It is a treap whose priorities are
+ * derived from the keys, so adding or removing a key copies only the
+ * O(log n) nodes on its path, and the keys with a given prefix are reached
+ * in O(log n + k).
+ */
+final class KeyIndex {
+	static final KeyIndex EMPTY = new KeyIndex(null);
+
+	private final Node root;
+
+	private KeyIndex(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * Returns an index with the given changes applied: keys mapped to
+	 * <tt>null</tt> are removed, the others are added if missing.
+	 */
+	KeyIndex withChanges(Map<String, String> changes) {
+		Node node = root;
+		for (Entry<String, String> change : changes.entrySet())
+			node = change.getValue() == null ? remove(node, change.getKey()) : add(node, change.getKey(), priority(change.getKey()));
+		return node == root ? this : new KeyIndex(node);
+	}
+
+	boolean contains(String key) {
+		Node node = root;
+		while (node != null) {
+			int comparison = key.compareTo(node.key);
+			if (comparison == 0)
+				return true;
+			node = comparison < 0 ? node.left : node.right;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a read-only view of the keys starting with the given prefix, in
+	 * ascending order.
+	 */
+	Set<String> withPrefix(final String prefix) {
+		return new AbstractSet<String>() {
+			private int size = -1;
+
+			public Iterator<String> iterator() {
+				return new PrefixIterator(root, prefix);
+			}
+
+			public int size() {
+				if (size < 0) {
+					int count = 0;
+					for (Iterator<String> i = iterator(); i.hasNext(); i.next())
+						count++;
+					size = count;
+				}
+				return size;
+			}
+
+			public boolean contains(Object o) {
+				return o instanceof String && ((String) o).startsWith(prefix) && KeyIndex.this.contains((String) o);
+			}
+		};
+	}
+
+	private static int priority(String key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static Node add(Node node, String key, int priority) {
+		if (node == null)
+			return new Node(key, priority, null, null);
+		int comparison = key.compareTo(node.key);
+		if (comparison == 0)
+			return node;
+		if (comparison < 0) {
+			Node left = add(node.left, key, priority);
+			if (left == node.left)
+				return node;
+			if (left.priority > node.priority)
+				return new Node(left.key, left.priority, left.left, new Node(node.key, node.priority, left.right, node.right));
+			return new Node(node.key, node.priority, left, node.right);
+		}
+		Node right = add(node.right, key, priority);
+		if (right == node.right)
+			return node;
+		if (right.priority > node.priority)
+			return new Node(right.key, right.priority, new Node(node.key, node.priority, node.left, right.left), right.right);
+		return new Node(node.key, node.priority, node.left, right);
+	}
+
+	private static Node remove(Node node, String key) {
+		if (node == null)
+			return null;
+		int comparison = key.compareTo(node.key);
+		if (comparison == 0)
+			return join(node.left, node.right);
+		if (comparison < 0) {
+			Node left = remove(node.left, key);
+			return left == node.left ? node : new Node(node.key, node.priority, left, node.right);
+		}
+		Node right = remove(node.right, key);
+		return right == node.right ? node : new Node(node.key, node.priority, node.left, right);
+	}
+
+	/**
+	 * Joins two treaps, all keys of the first one being lower than the keys
+	 * of the second one.
+	 */
+	private static Node join(Node low, Node high) {
+		if (low == null)
+			return high;
+		if (high == null)
+			return low;
+		if (low.priority >= high.priority)
+			return new Node(low.key, low.priority, low.left, join(low.right, high));
+		return new Node(high.key, high.priority, join(low, high.left), high.right);
+	}
+
+	private static final class Node {
+		private final String key;
+		private final int priority;
+		private final Node left;
+		private final Node right;
+
+		Node(String key, int priority, Node left, Node right) {
+			this.key = key;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	/**
+	 * Walks the keys in order, starting from the lowest key which is not
+	 * lower than the prefix and stopping at the first key without it.
+	 */
+	private static final class PrefixIterator implements Iterator<String> {
+		private final Deque<Node> path = new ArrayDeque<>();
+		private final String prefix;
+		private String next;
+
+		PrefixIterator(Node root, String prefix) {
+			this.prefix = prefix;
+			for (Node node = root; node != null;)
+				if (node.key.compareTo(prefix) >= 0) {
+					path.push(node);
+					node = node.left;
+				} else {
+					node = node.right;
+				}
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			if (path.isEmpty())
+				return;
+			Node node = path.pop();
+			if (!node.key.startsWith(prefix)) {
+				path.clear();
+				return;
+			}
+			next = node.key;
+			for (Node child = node.right; child != null; child = child.left)
+				path.push(child);
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public String next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			String key = next;
+			advance();
+			return key;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How often a key was read, in total and by getter, as estimated from the
+ * sampled reads.
+ */
+public final class KeyUsage {
+	private final String key;
+	private final long reads;
+	private final Map<String, Long> readsByGetter;
+
+	KeyUsage(String key, Map<String, Long> readsByGetter) {
+		long reads = 0;
+		for (long count : readsByGetter.values())
+			reads += count;
+		this.key = key;
+		this.reads = reads;
+		this.readsByGetter = Collections.unmodifiableMap(new LinkedHashMap<>(readsByGetter));
+	}
+
+	/**
+	 * Returns the key of the configuration property.
+	 * 
+	 * @return the key
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the estimated number of reads of the key.
+	 * 
+	 * @return the number of reads
+	 */
+	public long getReads() {
+		return reads;
+	}
+
+	/**
+	 * Returns the estimated number of reads by each getter which read the
+	 * key, such as <tt>getIntValue</tt> or <tt>getStringList</tt>.
+	 * 
+	 * @return the number of reads by getter name
+	 */
+	public Map<String, Long> getReadsByGetter() {
+		return readsByGetter;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d reads %s", key, reads, readsByGetter);
+	}
+}
@@ -0,0 +1,103 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The keys of a configuration which were never read and the keys read most
+ * often, from the reads sampled since tracking was enabled.
+ * <p/>
+ * <p>
+ * With a sample rate above 1, keys read only a few times may not have been
+ * sampled and be reported as unread; track every read, with a sample rate of
+ * 1, before pruning keys from a configuration.
+ * </p>
+ */
+public final class KeyUsageReport {
+	private final int sampleRate;
+	private final Set<String> unreadKeys;
+	private final List<KeyUsage> usage;
+
+	KeyUsageReport(int sampleRate, Set<String> unreadKeys, List<KeyUsage> usage) {
+		this.sampleRate = sampleRate;
+		this.unreadKeys = Collections.unmodifiableSet(unreadKeys);
+		List<KeyUsage> sorted = new ArrayList<>(usage);
+		Collections.sort(sorted, new Comparator<KeyUsage>() {
+			public int compare(KeyUsage a, KeyUsage b) {
+				int comparison = Long.compare(b.getReads(), a.getReads());
+				return comparison != 0 ? comparison : a.getKey().compareTo(b.getKey());
+			}
+		});
+		this.usage = Collections.unmodifiableList(sorted);
+	}
+
+	/**
+	 * Returns one in how many reads was sampled.
+	 * 
+	 * @return the sample rate
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * Returns the keys of the configuration which were not read, in ascending
+	 * order. Keys with a registered {@link ConfigKey} handle count as read.
+	 * 
+	 * @return the unread keys
+	 */
+	public Set<String> getUnreadKeys() {
+		return unreadKeys;
+	}
+
+	/**
+	 * Returns the keys read most often. Only reads of keys which were set are
+	 * counted, so keys read while they were not set never appear, but a key
+	 * which was removed after it was read does.
+	 * 
+	 * @param limit
+	 *            the maximum number of keys to return
+	 * @return the usage of the hottest keys, most read first
+	 */
+	public List<KeyUsage> getHottestKeys(int limit) {
+		return usage.subList(0, Math.min(limit, usage.size()));
+	}
+
+	/**
+	 * Returns the usage of the given key.
+	 * 
+	 * @param key
+	 *            of the configuration property
+	 * @return the usage, or null if no read of the key was sampled
+	 */
+	public KeyUsage getUsage(String key) {
+		for (KeyUsage keyUsage : usage)
+			if (keyUsage.getKey().equals(key))
+				return keyUsage;
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d unread keys, hottest %s", unreadKeys.size(), getHottestKeys(10));
+	}
+}
@@ -0,0 +1,114 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts sampled reads per key and getter. Unsampled reads cost a single
+ * random draw; sampled reads increment a counter of the key, which is
+ * created on the first sampled read. Besides the typed getters, reads of
+ * whole groups of properties, such as {@link #PROPERTIES}, are counted for
+ * each key they hand out. Only keys which are set are recorded, so the
+ * counters never outnumber the keys the configuration has held.
+ */
+final class KeyUsageTracker {
+	static final int VALUE = 0;
+	static final int LIST = 1;
+	static final int ARRAY = 2;
+
+	private final static int SHAPES = 3;
+	private final static String[] TYPES = { "Boolean", "Byte", "Char", "Double", "Float", "Int", "Long", "Short", "String" };
+	private final static String[] SUFFIXES = { "Value", "List", "Array" };
+	private final static String[] GROUPS = { "getSubset", "getSubsetAsMap", "getProperties", "iterator" };
+
+	static final int SUBSET = TYPES.length * SHAPES;
+	static final int SUBSET_MAP = SUBSET + 1;
+	static final int PROPERTIES = SUBSET + 2;
+	static final int ITERATION = SUBSET + 3;
+
+	private final int sampleRate;
+	private final ConcurrentMap<String, AtomicLongArray> reads = new ConcurrentHashMap<>();
+
+	KeyUsageTracker(int sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Returns the code identifying a getter, from the type it converts to
+	 * and the shape it returns.
+	 */
+	static int getter(ValueConverter<?> converter, int shape) {
+		return converter.index() * SHAPES + shape;
+	}
+
+	/**
+	 * Returns the name of the getter method identified by the code, such as
+	 * <tt>getIntList</tt>.
+	 */
+	static String name(int getter) {
+		if (getter >= SUBSET)
+			return GROUPS[getter - SUBSET];
+		return "get" + TYPES[getter / SHAPES] + SUFFIXES[getter % SHAPES];
+	}
+
+	void record(String key, int getter) {
+		if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+			return;
+		AtomicLongArray counts = reads.get(key);
+		if (counts == null) {
+			AtomicLongArray created = new AtomicLongArray(SUBSET + GROUPS.length);
+			counts = reads.putIfAbsent(key, created);
+			if (counts == null)
+				counts = created;
+		}
+		counts.incrementAndGet(getter);
+	}
+
+	/**
+	 * Reports on the given keys of the configuration; the keys in
+	 * <tt>used</tt> count as read whether or not a read was sampled.
+	 */
+	KeyUsageReport report(Set<String> keys, Set<String> used) {
+		Set<String> unread = new TreeSet<>();
+		for (String key : keys)
+			if (!reads.containsKey(key) && !used.contains(key))
+				unread.add(key);
+		List<KeyUsage> usage = new ArrayList<>();
+		for (Entry<String, AtomicLongArray> entry : reads.entrySet()) {
+			Map<String, Long> byGetter = new LinkedHashMap<>();
+			AtomicLongArray counts = entry.getValue();
+			for (int getter = 0; getter < counts.length(); getter++) {
+				long count = counts.get(getter);
+				if (count > 0)
+					byGetter.put(name(getter), count * sampleRate);
+			}
+			usage.add(new KeyUsage(entry.getKey(), byGetter));
+		}
+		return new KeyUsageReport(sampleRate, unread, usage);
+	}
+}
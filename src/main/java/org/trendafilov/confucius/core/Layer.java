@@ -0,0 +1,46 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+/**
+ * The sources of configuration properties, from the lowest priority to the
+ * highest. A property is read from the highest layer which holds it.
+ */
+public enum Layer {
+	/**
+	 * The environment variables of the process, if enabled with the
+	 * <tt>conf.environment</tt> system property.
+	 */
+	ENVIRONMENT,
+
+	/**
+	 * The JVM System properties, as they were when the configuration was
+	 * created.
+	 */
+	SYSTEM,
+
+	/**
+	 * The properties read from the configuration file or stream, in the active
+	 * context.
+	 */
+	FILE,
+
+	/**
+	 * The properties set or cleared at runtime.
+	 */
+	RUNTIME
+}
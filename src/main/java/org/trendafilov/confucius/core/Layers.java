@@ -0,0 +1,127 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * The content of each {@link Layer}. A key mapped to <tt>null</tt> in a layer
+ * hides the key in the layers below it. Changing a layer only touches the
+ * keys it changes: for each of them, the value visible in the flattened view
+ * is looked up from the highest layer down, and returned so that the caller
+ * can publish it. Not thread-safe; callers serialize access.
+ */
+final class Layers {
+	private final static Layer[] TOP_DOWN;
+
+	static {
+		Layer[] layers = Layer.values();
+		TOP_DOWN = new Layer[layers.length];
+		for (int i = 0; i < layers.length; i++)
+			TOP_DOWN[i] = layers[layers.length - 1 - i];
+	}
+
+	private final Map<Layer, Map<String, String>> layers = new EnumMap<>(Layer.class);
+
+	Layers() {
+		for (Layer layer : Layer.values())
+			layers.put(layer, new HashMap<String, String>());
+	}
+
+	/**
+	 * Returns a read-only view of the given layer.
+	 */
+	Map<String, String> get(Layer layer) {
+		return Collections.unmodifiableMap(layers.get(layer));
+	}
+
+	/**
+	 * Returns the layer the visible value of the key comes from, or null if
+	 * the key has no visible value.
+	 */
+	Layer source(String key) {
+		for (Layer layer : TOP_DOWN) {
+			Map<String, String> content = layers.get(layer);
+			if (content.containsKey(key))
+				return content.get(key) == null ? null : layer;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the visible value of every key, merged from the lowest layer
+	 * up.
+	 */
+	Map<String, String> flatten() {
+		Map<String, String> view = new HashMap<>();
+		for (Layer layer : Layer.values())
+			for (Entry<String, String> entry : layers.get(layer).entrySet())
+				if (entry.getValue() == null)
+					view.remove(entry.getKey());
+				else
+					view.put(entry.getKey(), entry.getValue());
+		return view;
+	}
+
+	/**
+	 * Replaces the content of the layer.
+	 * 
+	 * @return the visible value of every key the layer held before or holds
+	 *         now, or <tt>null</tt> for those which are no longer visible
+	 */
+	Map<String, String> replace(Layer layer, Map<String, String> content) {
+		Map<String, String> previous = layers.get(layer);
+		Set<String> keys = new HashSet<>(previous.keySet());
+		keys.addAll(content.keySet());
+		layers.put(layer, new HashMap<>(content));
+		return visible(keys);
+	}
+
+	/**
+	 * Sets the given keys in the layer; keys mapped to <tt>null</tt> hide the
+	 * keys in the layers below.
+	 * 
+	 * @return the visible value of each of the given keys, or <tt>null</tt>
+	 *         for those which are no longer visible
+	 */
+	Map<String, String> update(Layer layer, Map<String, String> changes) {
+		layers.get(layer).putAll(changes);
+		return visible(changes.keySet());
+	}
+
+	private Map<String, String> visible(Set<String> keys) {
+		Map<String, String> values = new HashMap<>();
+		for (String key : keys)
+			values.put(key, value(key));
+		return values;
+	}
+
+	private String value(String key) {
+		for (Layer layer : TOP_DOWN) {
+			Map<String, String> content = layers.get(layer);
+			if (content.containsKey(key))
+				return content.get(key);
+		}
+		return null;
+	}
+}
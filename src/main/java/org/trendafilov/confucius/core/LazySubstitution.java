@@ -0,0 +1,169 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Resolves substitutions on read rather than when the configuration is
+ * parsed. A value is resolved the first time it is read and memoized until
+ * one of the keys it depends on, directly or not, changes.
+ * <p/>
+ * <p>
+ * Readers take no locks: each published snapshot comes with its own memo, a
+ * {@link PersistentMap} which readers extend by compare and set. The next
+ * snapshot inherits the memo without the entries the change invalidated,
+ * sharing every other entry, so a write costs time proportional to the
+ * invalidated entries rather than to the size of the memo. Writers must call
+ * {@link #publish} one at a time.
+ * </p>
+ */
+class LazySubstitution {
+
+	/**
+	 * The keys referring to each key. Only accessed by writers.
+	 */
+	private final Map<String, Set<String>> dependents = new HashMap<>();
+
+	private volatile State state = new State(Collections.<String, String> emptyMap(),
+			PersistentMap.<VariableResolver.Resolved> empty());
+
+	/**
+	 * Returns the value of the given key with its references substituted, or
+	 * null if the key is missing.
+	 */
+	String get(String key) {
+		return state.get(key);
+	}
+
+	/**
+	 * Returns the last published snapshot with its memo, which resolves values
+	 * as they were at that point even after later changes.
+	 */
+	State getState() {
+		return state;
+	}
+
+	/**
+	 * Substitutes the references of a value of the given key in a snapshot
+	 * which has not been published, without memoizing anything.
+	 */
+	static String preview(Map<String, String> snapshot, String key) {
+		return new VariableResolver(snapshot, new HashMap<String, VariableResolver.Resolved>()).get(key);
+	}
+
+	/**
+	 * Publishes a new snapshot, made by applying the given changes to the
+	 * current one, and returns the keys which were not changed themselves but
+	 * refer to changed keys and now resolve to a different value, with their
+	 * new value.
+	 */
+	Map<String, String> publish(Map<String, String> snapshot, Map<String, String> changes) {
+		State previous = state;
+		for (Entry<String, String> change : changes.entrySet()) {
+			String key = change.getKey();
+			String value = previous.snapshot.get(key);
+			if (value != null)
+				for (String reference : VariableResolver.references(value))
+					removeDependent(reference, key);
+			if (change.getValue() != null)
+				for (String reference : VariableResolver.references(change.getValue()))
+					addDependent(reference, key);
+		}
+		Set<String> affected = new HashSet<>();
+		Deque<String> queue = new ArrayDeque<>(changes.keySet());
+		while (!queue.isEmpty()) {
+			Set<String> keys = dependents.get(queue.poll());
+			if (keys != null)
+				for (String key : keys)
+					if (affected.add(key))
+						queue.add(key);
+		}
+		affected.removeAll(changes.keySet());
+		Map<String, String> before = new HashMap<>();
+		for (String key : affected)
+			before.put(key, previous.get(key));
+		PersistentMap<VariableResolver.Resolved> resolved = previous.resolved.get();
+		for (String key : changes.keySet())
+			resolved = resolved.without(key);
+		for (String key : affected)
+			resolved = resolved.without(key);
+		state = new State(snapshot, resolved);
+		Map<String, String> derived = new HashMap<>();
+		for (String key : affected) {
+			String value = state.get(key);
+			if (!value.equals(before.get(key)))
+				derived.put(key, value);
+		}
+		return derived;
+	}
+
+	private void addDependent(String reference, String key) {
+		Set<String> keys = dependents.get(reference);
+		if (keys == null) {
+			keys = new HashSet<>();
+			dependents.put(reference, keys);
+		}
+		keys.add(key);
+	}
+
+	private void removeDependent(String reference, String key) {
+		Set<String> keys = dependents.get(reference);
+		if (keys != null && keys.remove(key) && keys.isEmpty())
+			dependents.remove(reference);
+	}
+
+	static final class State {
+		private final Map<String, String> snapshot;
+		private final AtomicReference<PersistentMap<VariableResolver.Resolved>> resolved;
+
+		State(Map<String, String> snapshot, PersistentMap<VariableResolver.Resolved> resolved) {
+			this.snapshot = snapshot;
+			this.resolved = new AtomicReference<>(resolved);
+		}
+
+		String get(String key) {
+			String value = snapshot.get(key);
+			if (value == null || !VariableResolver.hasReferences(value))
+				return value;
+			PersistentMap<VariableResolver.Resolved> memo = resolved.get();
+			VariableResolver.Resolved cached = memo.get(key);
+			if (cached != null)
+				return cached.getValue();
+			Map<String, VariableResolver.Resolved> fresh = new HashMap<>();
+			value = new VariableResolver(snapshot, memo, fresh).get(key);
+			while (!resolved.compareAndSet(memo, memo.withChanges(fresh)))
+				memo = resolved.get();
+			return value;
+		}
+
+		/**
+		 * Tells whether the resolved value of the given key is memoized.
+		 */
+		boolean isMemoized(String key) {
+			return resolved.get().containsKey(key);
+		}
+	}
+}
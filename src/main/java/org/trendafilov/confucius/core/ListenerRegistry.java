@@ -0,0 +1,292 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches changed keys to listeners and delivers the changes asynchronously.
+ * <p>
+ * Listeners are indexed in a character trie, so finding the listeners of a
+ * key costs a walk over the characters of the key, independent of the number
+ * of registered listeners. Each listener has a single pending delta; changes
+ * that arrive before the delta has been delivered are merged into it, and a
+ * listener is never invoked concurrently with itself.
+ * </p>
+ * <p>
+ * Changes are dispatched by writers while they hold the configuration lock,
+ * so dispatching only merges the deltas. The listeners are handed to the
+ * executor by {@link #deliver()}, once the lock has been released, so that a
+ * slow or saturated executor never holds up other writers.
+ * </p>
+ */
+class ListenerRegistry {
+	private final static Logger LOG = LoggerFactory.getLogger(ListenerRegistry.class);
+
+	private final Node root = new Node();
+	private final Map<ConfigurationListener, Subscription> subscriptions = new IdentityHashMap<>();
+	private final Queue<Subscription> ready = new ConcurrentLinkedQueue<>();
+	private volatile Executor executor;
+	private volatile boolean empty = true;
+
+	synchronized void addListener(String key, ConfigurationListener listener) {
+		Node node = node(key);
+		Subscription subscription = subscription(listener);
+		node.exact.add(subscription);
+		subscription.exact.add(node);
+	}
+
+	synchronized void addPrefixListener(String prefix, ConfigurationListener listener) {
+		Node node = node(prefix);
+		Subscription subscription = subscription(listener);
+		node.prefix.add(subscription);
+		subscription.prefix.add(node);
+	}
+
+	synchronized void removeListener(ConfigurationListener listener) {
+		Subscription subscription = subscriptions.remove(listener);
+		if (subscription == null)
+			return;
+		for (Node node : subscription.exact) {
+			node.exact.remove(subscription);
+			prune(node);
+		}
+		for (Node node : subscription.prefix) {
+			node.prefix.remove(subscription);
+			prune(node);
+		}
+		empty = subscriptions.isEmpty();
+	}
+
+	void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	boolean isEmpty() {
+		return empty;
+	}
+
+	/**
+	 * Returns the number of nodes in the trie, not counting the root.
+	 */
+	synchronized int nodes() {
+		int count = -1;
+		List<Node> pending = new ArrayList<>();
+		pending.add(root);
+		while (!pending.isEmpty()) {
+			Node node = pending.remove(pending.size() - 1);
+			pending.addAll(node.children.values());
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Queues the changes for every listener registered for one of the changed
+	 * keys. Keys mapped to <tt>null</tt> were removed. The listeners are not
+	 * notified until {@link #deliver()} is called.
+	 */
+	void dispatch(Map<String, String> changes) {
+		if (empty)
+			return;
+		Map<Subscription, Map<String, String>> deltas = new LinkedHashMap<>();
+		synchronized (this) {
+			for (Entry<String, String> change : changes.entrySet())
+				for (Subscription subscription : match(change.getKey())) {
+					Map<String, String> delta = deltas.get(subscription);
+					if (delta == null) {
+						delta = new LinkedHashMap<>();
+						deltas.put(subscription, delta);
+					}
+					delta.put(change.getKey(), change.getValue());
+				}
+		}
+		for (Entry<Subscription, Map<String, String>> delta : deltas.entrySet())
+			if (delta.getKey().offer(delta.getValue()))
+				ready.add(delta.getKey());
+	}
+
+	/**
+	 * Hands the listeners with newly queued changes to the executor. Must be
+	 * called by every writer after dispatching, once it no longer holds the
+	 * configuration lock. Any writer may deliver the changes queued by
+	 * another.
+	 */
+	void deliver() {
+		Subscription subscription;
+		while ((subscription = ready.poll()) != null)
+			subscription.schedule();
+	}
+
+	private List<Subscription> match(String key) {
+		List<Subscription> matches = new ArrayList<>();
+		Node node = root;
+		matches.addAll(node.prefix);
+		for (int i = 0; i < key.length() && node != null; i++) {
+			node = node.children.get(key.charAt(i));
+			if (node != null)
+				matches.addAll(node.prefix);
+		}
+		if (node != null)
+			matches.addAll(node.exact);
+		return matches;
+	}
+
+	private Node node(String key) {
+		Node node = root;
+		for (int i = 0; i < key.length(); i++) {
+			Node child = node.children.get(key.charAt(i));
+			if (child == null) {
+				child = new Node(node, key.charAt(i));
+				node.children.put(key.charAt(i), child);
+			}
+			node = child;
+		}
+		return node;
+	}
+
+	/**
+	 * Detaches the node and its ancestors from the trie for as long as they
+	 * have neither listeners nor children.
+	 */
+	private void prune(Node node) {
+		while (node.parent != null && node.exact.isEmpty() && node.prefix.isEmpty() && node.children.isEmpty()) {
+			node.parent.children.remove(node.label, node);
+			node = node.parent;
+		}
+	}
+
+	private Subscription subscription(ConfigurationListener listener) {
+		Subscription subscription = subscriptions.get(listener);
+		if (subscription == null) {
+			subscription = new Subscription(listener);
+			subscriptions.put(listener, subscription);
+			empty = false;
+		}
+		return subscription;
+	}
+
+	private Executor executor() {
+		Executor current = executor;
+		return current == null ? DefaultExecutor.INSTANCE : current;
+	}
+
+	private static class Node {
+		private final Node parent;
+		private final Character label;
+		private final Map<Character, Node> children = new HashMap<>();
+		private final List<Subscription> exact = new ArrayList<>(1);
+		private final List<Subscription> prefix = new ArrayList<>(1);
+
+		Node() {
+			this(null, null);
+		}
+
+		Node(Node parent, Character label) {
+			this.parent = parent;
+			this.label = label;
+		}
+	}
+
+	private class Subscription implements Runnable {
+		private final ConfigurationListener listener;
+		private final List<Node> exact = new ArrayList<>(1);
+		private final List<Node> prefix = new ArrayList<>(1);
+		private Map<String, String> pending = new LinkedHashMap<>();
+		private boolean scheduled;
+
+		Subscription(ConfigurationListener listener) {
+			this.listener = listener;
+		}
+
+		/**
+		 * Merges the changes into the pending delta.
+		 * 
+		 * @return whether the subscription has to be scheduled
+		 */
+		synchronized boolean offer(Map<String, String> changes) {
+			pending.putAll(changes);
+			if (scheduled)
+				return false;
+			scheduled = true;
+			return true;
+		}
+
+		public void run() {
+			Map<String, String> delta;
+			synchronized (this) {
+				delta = pending;
+				pending = new LinkedHashMap<>();
+			}
+			try {
+				listener.onChange(new ConfigurationChange(delta));
+			} catch (RuntimeException e) {
+				LOG.warn("Configuration listener failed to process change " + delta, e);
+			} finally {
+				boolean more;
+				synchronized (this) {
+					more = !pending.isEmpty();
+					scheduled = more;
+				}
+				if (more)
+					schedule();
+			}
+		}
+
+		/**
+		 * Hands the subscription to the executor. If the executor rejects it,
+		 * the pending changes are kept and delivery is retried on the next
+		 * change.
+		 */
+		private void schedule() {
+			try {
+				executor().execute(this);
+			} catch (RejectedExecutionException e) {
+				synchronized (this) {
+					scheduled = false;
+				}
+				LOG.warn("Configuration listener executor rejected change notification", e);
+			}
+		}
+	}
+
+	private static class DefaultExecutor {
+		private final static ExecutorService INSTANCE = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "confucius-listeners");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+/**
+ * Parses numbers and booleans from a character range of a larger string,
+ * following the rules of {@link Integer#parseInt(String)},
+ * {@link Long#parseLong(String)} and {@link Boolean#parseBoolean(String)}
+ * without first copying the range into a new string.
+ */
+class NumberParser {
+
+	private NumberParser() {
+	}
+
+	static boolean parseBoolean(String value, int start, int end) {
+		return end - start == 4 && value.regionMatches(true, start, "true", 0, 4);
+	}
+
+	static byte parseByte(String value, int start, int end) {
+		int result = parseInt(value, start, end);
+		if (result < Byte.MIN_VALUE || result > Byte.MAX_VALUE)
+			throw outOfRange(value, start, end);
+		return (byte) result;
+	}
+
+	static short parseShort(String value, int start, int end) {
+		int result = parseInt(value, start, end);
+		if (result < Short.MIN_VALUE || result > Short.MAX_VALUE)
+			throw outOfRange(value, start, end);
+		return (short) result;
+	}
+
+	static int parseInt(String value, int start, int end) {
+		return (int) parse(value, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	static long parseLong(String value, int start, int end) {
+		return parse(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	static char parseChar(String value, int start, int end) {
+		if (start >= end)
+			throw new StringIndexOutOfBoundsException(0);
+		return value.charAt(start);
+	}
+
+	private static long parse(String value, int start, int end, long min, long max) {
+		if (start >= end)
+			throw forInput(value, start, end);
+		int i = start;
+		boolean negative = false;
+		long limit = -max;
+		char first = value.charAt(i);
+		if (first < '0') {
+			if (first == '-') {
+				negative = true;
+				limit = min;
+			} else if (first != '+') {
+				throw forInput(value, start, end);
+			}
+			if (end - start == 1)
+				throw forInput(value, start, end);
+			i++;
+		}
+		long multiplyMin = limit / 10;
+		long result = 0;
+		while (i < end) {
+			int digit = Character.digit(value.charAt(i++), 10);
+			if (digit < 0 || result < multiplyMin)
+				throw forInput(value, start, end);
+			result *= 10;
+			if (result < limit + digit)
+				throw forInput(value, start, end);
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	private static NumberFormatException forInput(String value, int start, int end) {
+		return new NumberFormatException("For input string: \"" + value.substring(start, end) + "\"");
+	}
+
+	private static NumberFormatException outOfRange(String value, int start, int end) {
+		return new NumberFormatException("Value out of range. Value:\"" + value.substring(start, end) + "\" Radix:10");
+	}
+}
@@ -16,115 +16,455 @@
 
 package org.trendafilov.confucius.core;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.Map.Entry;
 
+/**
+ * Parses a configuration into one flattened view per context, each with the
+ * <tt>Default</tt> context merged underneath. A context may inherit from
+ * another one, e.g. <tt>[Staging : Production]</tt>, in which case the parent
+ * view is merged underneath instead. All views are built once, when the
+ * configuration is parsed. The view of a context shares the properties it
+ * inherits with the view of its parent, so each context only costs its own
+ * lines, unless values refer to other keys and have to be substituted.
+ */
 class Parser {
 	private final static String DEFAULT_CONTEXT = "Default";
-	private final static String COMMENT = "#";
-	private final static String IDENTITY = "=";
-	private final static String LEFT_CONTEXT = "[";
-	private final static String RIGHT_CONTEXT = "]";
-	private final static String LEFT_SUBSTITUTION = "${";
-	private final static String RIGHT_SUBSTITUTION = "}";
+	private final static char COMMENT = '#';
+	private final static char IDENTITY = '=';
+	private final static char LEFT_CONTEXT = '[';
+	private final static char RIGHT_CONTEXT = ']';
+	private final static char INHERITANCE = ':';
+
+	/**
+	 * Context names as declared in the file, keyed by their lower case form.
+	 */
+	private final Map<String, String> names = new LinkedHashMap<>();
+	private final Map<String, Map<String, String>> sections = new HashMap<>();
+	private final Map<String, String> parents = new HashMap<>();
+	private final Map<String, ConfigurationException> errors = new HashMap<>();
+	private final Map<String, PersistentMap<String>> merged = new HashMap<>();
+	private final Map<String, Map<String, String>> views = new HashMap<>();
+	private final Map<String, ConfigurationException> broken = new HashMap<>();
+	private Map<String, String> standard = new HashMap<>();
+	private String section;
+
+	/**
+	 * Whether any value refers to another key, in which case every view has
+	 * to be substituted in full.
+	 */
+	private boolean references;
 
-	private final Map<String, String> configuration = new HashMap<>();
+	/**
+	 * The checksum of the parsed content, or -1 if it is not known.
+	 */
+	private long checksum = -1;
+	private Map<String, String> defaultView;
+	private final Map<String, String> configuration;
 
 	public Parser(ConfigurationDataProvider configurationDataProvider, String context) {
+		this(configurationDataProvider, context, true);
+	}
+
+	/**
+	 * @param substitute
+	 *            whether to substitute variables, or leave the references in
+	 *            the values to be resolved on read
+	 */
+	public Parser(ConfigurationDataProvider configurationDataProvider, String context, boolean substitute) {
+		try {
+			ByteBuffer content = configurationDataProvider.getContent();
+			checksum = Utils.checksum(content);
+			CharSequence text = configurationDataProvider.decode(content);
+			int length = text.length();
+			int start = 0;
+			while (start < length) {
+				int end = lineEnd(text, start, length);
+				parseLine(text, start, end);
+				start = nextLine(text, end, length);
+			}
+			if (names.isEmpty())
+				loadStandardProps(content);
+		} catch (IOException e) {
+			throw new ConfigurationException("Unable to read configuration", e);
+		}
+		compile(substitute);
+		this.configuration = getConfiguration(context);
+	}
+
+	/**
+	 * Parses the stream incrementally, in a single pass, without holding its
+	 * content in memory. Standard properties are loaded as the stream is read,
+	 * while each line is also checked for a context; once a context is found,
+	 * the stream is parsed as a context file instead. The stream is not
+	 * closed.
+	 */
+	public Parser(InputStream inputStream, String context) {
+		this(inputStream, context, true);
+	}
+
+	public Parser(InputStream inputStream, String context, boolean substitute) {
+		StreamingInput input = new StreamingInput(inputStream);
 		try {
-			Collection<String> lines = configurationDataProvider.getAllLines();
-			if (!lines.isEmpty() && isStandardProps(lines)) {
-				loadStandardProps(configurationDataProvider);
-			} else {
-				parseContext(lines, DEFAULT_CONTEXT);
-				parseContext(lines, context);
+			try {
+				new StreamingProperties().load(input);
+			} catch (IllegalArgumentException e) {
+				if (!input.drain())
+					throw e;
 			}
-			parseVariables();
 		} catch (IOException e) {
 			throw new ConfigurationException("Unable to read configuration", e);
 		}
+		compile(substitute);
+		this.configuration = getConfiguration(context);
+	}
+
+	/**
+	 * Restores a configuration from the views it was compiled into.
+	 * 
+	 * @param contexts
+	 *            the view of each declared context, by its declared name
+	 * @param errors
+	 *            the error message of each declared context which cannot be
+	 *            parsed, by its declared name
+	 * @param checksum
+	 *            of the content the views were parsed from
+	 */
+	Parser(Map<String, String> defaultView, Map<String, Map<String, String>> contexts, Map<String, String> errors, long checksum,
+			String context) {
+		this.defaultView = Collections.unmodifiableMap(defaultView);
+		this.checksum = checksum;
+		for (Entry<String, Map<String, String>> entry : contexts.entrySet()) {
+			names.put(key(entry.getKey()), entry.getKey());
+			views.put(key(entry.getKey()), Collections.unmodifiableMap(entry.getValue()));
+		}
+		for (Entry<String, String> entry : errors.entrySet()) {
+			names.put(key(entry.getKey()), entry.getKey());
+			broken.put(key(entry.getKey()), new ConfigurationException(entry.getValue()));
+		}
+		this.configuration = getConfiguration(context);
 	}
 
+	/**
+	 * Returns the view of the context the configuration was parsed for.
+	 */
 	public Map<String, String> getConfiguration() {
 		return configuration;
 	}
 
-	private Map<String, String> parseLine(String line) {
-		Map<String, String> pair = new HashMap<>();
-		String newLine = line.trim();
-		if (line.contains(COMMENT))
-			newLine = newLine.substring(0, line.indexOf(COMMENT)).trim();
-		if (newLine.isEmpty())
-			return pair;
-		if (newLine.contains(IDENTITY)) {
-			String key = newLine.substring(0, newLine.indexOf(IDENTITY)).trim();
-			String value = newLine.substring(newLine.indexOf(IDENTITY) + 1, newLine.length()).trim();
-			pair.put(key, value);
-			return pair;
-		} else {
-			throw new ConfigurationException(String.format("Unparsable line: [%s]", line));
+	/**
+	 * Returns the view of the given context, or of the <tt>Default</tt>
+	 * context if the given one is null or not declared.
+	 * 
+	 * @throws ConfigurationException
+	 *             if the context, or one it inherits from, cannot be parsed
+	 */
+	public Map<String, String> getConfiguration(String context) {
+		if (context == null)
+			return defaultView;
+		String key = key(context);
+		if (!names.containsKey(key))
+			return defaultView;
+		ConfigurationException error = broken.get(key);
+		if (error != null)
+			throw error;
+		return views.get(key);
+	}
+
+	/**
+	 * Returns the checksum of the content the configuration was parsed from,
+	 * as computed by {@link Utils#checksum(ByteBuffer)}, or -1 if the content
+	 * was streamed.
+	 */
+	long getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Returns the names of the contexts declared in the configuration.
+	 */
+	public Set<String> getContexts() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(names.values()));
+	}
+
+	/**
+	 * Handles a single line, which is either a context header or a property
+	 * of the current context. Lines before the first context are ignored.
+	 * Errors are recorded against the context and only raised if its view is
+	 * requested.
+	 */
+	private void parseLine(CharSequence text, int start, int end) {
+		String header = contextName(text, start, end);
+		if (header != null) {
+			section = declare(header);
+			return;
+		}
+		if (section == null || errors.containsKey(section))
+			return;
+		try {
+			parseLine(text, start, end, sections.get(section));
+		} catch (ConfigurationException e) {
+			errors.put(section, e);
 		}
 	}
 
-	private boolean isStandardProps(Collection<String> lines) {
-		for (String line : lines)
-			if (isContext(line))
-				return false;
-		return true;
+	private String declare(String header) {
+		String name = header;
+		String parent = null;
+		int inheritance = header.indexOf(INHERITANCE);
+		if (inheritance >= 0) {
+			name = header.substring(0, inheritance).trim();
+			parent = header.substring(inheritance + 1).trim();
+			if (parent.isEmpty())
+				parent = null;
+		}
+		String key = key(name);
+		if (names.isEmpty())
+			standard = null;
+		if (!names.containsKey(key)) {
+			names.put(key, name);
+			sections.put(key, new HashMap<String, String>());
+		}
+		if (parent != null) {
+			String previous = parents.put(key, key(parent));
+			if (previous != null && !previous.equals(key(parent)) && !errors.containsKey(key))
+				errors.put(key, new ConfigurationException(String.format("Conflicting parent contexts of [%s]", name)));
+		}
+		return key;
 	}
 
-	private void loadStandardProps(ConfigurationDataProvider provider) throws IOException {
-		Properties props = new Properties();
-		props.load(provider.getInputStream());
-		configuration.putAll(Utils.propertiesToMap(props));
+	/**
+	 * Builds the view of every context, resolving inheritance and
+	 * substitutions once, then drops the parsed sections.
+	 */
+	private void compile(boolean substitute) {
+		if (standard != null) {
+			defaultView = Collections.unmodifiableMap(substitute(new HashMap<>(standard), substitute));
+			return;
+		}
+		for (String key : names.keySet())
+			try {
+				Map<String, String> view = merge(key, new ArrayList<String>());
+				if (substitute && references)
+					view = VariableResolver.resolve(new HashMap<>(view));
+				views.put(key, Collections.unmodifiableMap(view));
+			} catch (ConfigurationException e) {
+				broken.put(key, e);
+			}
+		sections.clear();
+		merged.clear();
+		String key = key(DEFAULT_CONTEXT);
+		if (broken.containsKey(key))
+			throw broken.get(key);
+		defaultView = views.containsKey(key) ? views.get(key) : Collections.<String, String> emptyMap();
+	}
+
+	private static Map<String, String> substitute(Map<String, String> view, boolean substitute) {
+		return substitute ? VariableResolver.resolve(view) : view;
 	}
 
-	private void parseContext(Collection<String> lines, String context) {
-		boolean insideContext = false;
-		for (String line : lines) {
-			if (isNamedContext(line, context))
-				insideContext = true;
-			else if (insideContext && isContext(line))
-				insideContext = false;
-			else if (insideContext)
-				configuration.putAll(parseLine(line));
+	/**
+	 * Returns the properties of the context merged over those it inherits,
+	 * before substitution. The result shares the inherited properties with
+	 * the merged properties of the parent.
+	 */
+	private PersistentMap<String> merge(String key, List<String> path) {
+		PersistentMap<String> result = merged.get(key);
+		if (result != null)
+			return result;
+		if (path.contains(key)) {
+			path.add(key);
+			throw new ConfigurationException(String.format("Circular context inheritance: %s", path));
 		}
+		path.add(key);
+		ConfigurationException error = errors.get(key);
+		if (error != null)
+			throw error;
+		Map<String, String> properties = sections.get(key);
+		String parent = parents.get(key);
+		String defaultKey = key(DEFAULT_CONTEXT);
+		if (key.equals(defaultKey)) {
+			if (parent != null)
+				throw new ConfigurationException(String.format("Context [%s] cannot inherit", DEFAULT_CONTEXT));
+			result = PersistentMap.of(properties);
+		} else {
+			if (parent != null && !names.containsKey(parent))
+				throw new ConfigurationException(String.format("Unknown parent context [%s] of [%s]", parent, names.get(key)));
+			if (parent == null)
+				parent = defaultKey;
+			result = names.containsKey(parent) ? merge(parent, path) : PersistentMap.<String> empty();
+			result = result.withChanges(properties);
+		}
+		merged.put(key, result);
+		return result;
 	}
 
-	private void parseVariables() {
-		int previousSize = 0;
-		Map<String, String> unresolved = new HashMap<>();
-		for (Entry<String, String> entry : configuration.entrySet())
-			if (isSubstitution(entry.getValue()))
-				unresolved.put(entry.getKey(), getSubstitution(entry.getValue()));
-		while (previousSize != unresolved.size()) {
-			previousSize = unresolved.size();
-			List<String> resolved = new ArrayList<>();
-			for (Entry<String, String> entry : unresolved.entrySet())
-				if (configuration.containsKey(entry.getValue()) && !unresolved.containsKey(entry.getValue())) {
-					resolved.add(entry.getKey());
-					configuration.put(entry.getKey(), configuration.get(entry.getValue()));
-				}
-			for (String item : resolved)
-				unresolved.remove(item);
+	/**
+	 * Parses a <tt>key = value</tt> line, ignoring anything after a comment
+	 * sign, into the given map.
+	 */
+	private void parseLine(CharSequence text, int start, int end, Map<String, String> target) {
+		int comment = indexOf(text, COMMENT, start, end);
+		int from = trimStart(text, start, comment);
+		int to = trimEnd(text, from, comment);
+		if (from == to)
+			return;
+		int identity = indexOf(text, IDENTITY, from, to);
+		if (identity == to)
+			throw new ConfigurationException(String.format("Unparsable line: [%s]", text.subSequence(start, end)));
+		String key = text.subSequence(from, trimEnd(text, from, identity)).toString();
+		String value = text.subSequence(trimStart(text, identity + 1, to), to).toString();
+		references |= VariableResolver.hasReferences(value);
+		target.put(key, value);
+	}
+
+	/**
+	 * Returns the content between the brackets if the line is a context
+	 * header, e.g. <tt>[Name]</tt>, or null otherwise.
+	 */
+	private static String contextName(CharSequence text, int start, int end) {
+		int from = trimStart(text, start, end);
+		int to = trimEnd(text, from, end);
+		if (to - from < 2 || text.charAt(from) != LEFT_CONTEXT || text.charAt(to - 1) != RIGHT_CONTEXT)
+			return null;
+		return text.subSequence(from + 1, to - 1).toString();
+	}
+
+	private static String key(String context) {
+		return context.toLowerCase(Locale.ROOT);
+	}
+
+	private static int lineEnd(CharSequence text, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || c == '\r')
+				return i;
 		}
+		return end;
 	}
 
-	private boolean isContext(String line) {
-		line = line.trim();
-		return line.startsWith(LEFT_CONTEXT) && line.endsWith(RIGHT_CONTEXT);
+	private static int nextLine(CharSequence text, int lineEnd, int end) {
+		if (lineEnd < end && text.charAt(lineEnd) == '\r' && lineEnd + 1 < end && text.charAt(lineEnd + 1) == '\n')
+			return lineEnd + 2;
+		return lineEnd + 1;
 	}
 
-	private boolean isNamedContext(String line, String context) {
-		return context != null && line.trim().equalsIgnoreCase(LEFT_CONTEXT + context + RIGHT_CONTEXT);
+	private static int indexOf(CharSequence text, char c, int start, int end) {
+		for (int i = start; i < end; i++)
+			if (text.charAt(i) == c)
+				return i;
+		return end;
 	}
 
-	private boolean isSubstitution(String value) {
-		return value.startsWith(LEFT_SUBSTITUTION) && value.endsWith(RIGHT_SUBSTITUTION);
+	private static int trimStart(CharSequence text, int start, int end) {
+		while (start < end && text.charAt(start) <= ' ')
+			start++;
+		return start;
+	}
+
+	private static int trimEnd(CharSequence text, int start, int end) {
+		while (end > start && text.charAt(end - 1) <= ' ')
+			end--;
+		return end;
+	}
+
+	private void loadStandardProps(ByteBuffer content) throws IOException {
+		Properties props = new Properties();
+		try (InputStream input = new ByteBufferInputStream(content.duplicate())) {
+			props.load(input);
+		}
+		standard.putAll(Utils.propertiesToMap(props));
+	}
+
+	/**
+	 * Hands each line passing through to the context parser, keeping only the
+	 * current line in memory.
+	 */
+	private class StreamingInput extends FilterInputStream {
+		private byte[] line = new byte[256];
+		private int length;
+		private boolean carriageReturn;
+
+		StreamingInput(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b == -1)
+				endOfStream();
+			else
+				accept((byte) b);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int count = super.read(bytes, offset, length);
+			if (count == -1)
+				endOfStream();
+			for (int i = offset; i < offset + count; i++)
+				accept(bytes[i]);
+			return count;
+		}
+
+		/**
+		 * Reads the rest of the stream after {@link Properties#load} gave up
+		 * on it, and tells whether it turned out to be a context file.
+		 */
+		boolean drain() throws IOException {
+			byte[] buffer = new byte[8192];
+			while (read(buffer, 0, buffer.length) != -1)
+				;
+			return standard == null;
+		}
+
+		private void accept(byte b) throws IOException {
+			boolean lineFeed = b == '\n';
+			if (lineFeed && carriageReturn) {
+				carriageReturn = false;
+				return;
+			}
+			carriageReturn = b == '\r';
+			if (lineFeed || carriageReturn) {
+				endOfLine();
+				return;
+			}
+			if (length == line.length)
+				line = Arrays.copyOf(line, length * 2);
+			line[length++] = b;
+		}
+
+		private void endOfStream() throws IOException {
+			if (length > 0)
+				endOfLine();
+		}
+
+		private void endOfLine() throws IOException {
+			CharSequence text = Utils.decodeLeniently(ByteBuffer.wrap(line, 0, length));
+			length = 0;
+			parseLine(text, 0, text.length());
+		}
 	}
 
-	private String getSubstitution(String value) {
-		return value.substring(2, value.length() - 1);
+	/**
+	 * Stores loaded properties straight into the configuration rather than in
+	 * the table, and ignores them once the stream turns out to be a context
+	 * file.
+	 */
+	private class StreamingProperties extends Properties {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized Object put(Object key, Object value) {
+			if (standard != null)
+				standard.put((String) key, (String) value);
+			return null;
+		}
 	}
 }
@@ -0,0 +1,422 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable hash array mapped trie keyed by configuration property names,
+ * such as the properties themselves or values derived from them. Every
+ * modification returns a new map which shares all unchanged nodes with the
+ * original one, so it costs O(log n) rather than a full copy, and the
+ * differences between two versions of a map can be found by only visiting
+ * the nodes that are not shared.
+ */
+final class PersistentMap<V> extends AbstractMap<String, V> {
+	private final static int BITS = 5;
+	private final static int MASK = (1 << BITS) - 1;
+	private final static int MAX_SHIFT = 30;
+	private final static int MAX_DEPTH = MAX_SHIFT / BITS + 2;
+
+	private static final PersistentMap<?> EMPTY = new PersistentMap<>(new BitmapNode(0, new Object[0]), 0);
+
+	private final BitmapNode root;
+	private final int size;
+	private Set<Entry<String, V>> entrySet;
+
+	private PersistentMap(BitmapNode root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the empty map, which is shared.
+	 */
+	@SuppressWarnings("unchecked")
+	static <V> PersistentMap<V> empty() {
+		return (PersistentMap<V>) EMPTY;
+	}
+
+	/**
+	 * Returns a map holding the given entries.
+	 */
+	static <V> PersistentMap<V> of(Map<String, V> entries) {
+		return PersistentMap.<V> empty().withChanges(entries);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if (!(key instanceof String))
+			return null;
+		return (V) root.get((String) key, hash(key), 0);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Entry<String, V>> entrySet() {
+		if (entrySet == null)
+			entrySet = new AbstractSet<Entry<String, V>>() {
+				public Iterator<Entry<String, V>> iterator() {
+					return new EntryIterator<>(root);
+				}
+
+				public int size() {
+					return size;
+				}
+			};
+		return entrySet;
+	}
+
+	/**
+	 * Returns a map with the given key set to the given value.
+	 */
+	PersistentMap<V> with(String key, V value) {
+		int hash = hash(key);
+		Object previous = root.get(key, hash, 0);
+		if (value.equals(previous))
+			return this;
+		return new PersistentMap<>((BitmapNode) root.put(new Leaf(key, value, hash), 0), previous == null ? size + 1 : size);
+	}
+
+	/**
+	 * Returns a map without the given key.
+	 */
+	PersistentMap<V> without(String key) {
+		int hash = hash(key);
+		if (root.get(key, hash, 0) == null)
+			return this;
+		Object node = root.remove(key, hash, 0);
+		return node == null ? PersistentMap.<V> empty() : new PersistentMap<V>((BitmapNode) node, size - 1);
+	}
+
+	/**
+	 * Returns a map with the given changes applied; keys mapped to
+	 * <tt>null</tt> are removed.
+	 */
+	PersistentMap<V> withChanges(Map<String, ? extends V> changes) {
+		PersistentMap<V> map = this;
+		for (Entry<String, ? extends V> change : changes.entrySet())
+			map = change.getValue() == null ? map.without(change.getKey()) : map.with(change.getKey(), change.getValue());
+		return map;
+	}
+
+	/**
+	 * Returns the changes which turn this map into the given one, with
+	 * removed keys mapped to <tt>null</tt>. Subtrees the two maps share are
+	 * skipped, so the cost is proportional to the differences rather than to
+	 * the size of the maps.
+	 */
+	@SuppressWarnings("unchecked")
+	Map<String, V> diff(PersistentMap<V> other) {
+		Map<String, Object> changes = new HashMap<>();
+		diff(root, other.root, changes);
+		return (Map<String, V>) changes;
+	}
+
+	private static void diff(Object from, Object to, Map<String, Object> changes) {
+		if (from == to)
+			return;
+		if (from instanceof BitmapNode && to instanceof BitmapNode) {
+			BitmapNode a = (BitmapNode) from;
+			BitmapNode b = (BitmapNode) to;
+			for (int bits = a.bitmap | b.bitmap; bits != 0; bits &= bits - 1) {
+				int bit = bits & -bits;
+				diff(a.slot(bit), b.slot(bit), changes);
+			}
+			return;
+		}
+		Map<String, Object> before = new HashMap<>();
+		collect(from, before);
+		Map<String, Object> after = new HashMap<>();
+		collect(to, after);
+		for (String key : before.keySet())
+			if (!after.containsKey(key))
+				changes.put(key, null);
+		for (Entry<String, Object> entry : after.entrySet())
+			if (!entry.getValue().equals(before.get(entry.getKey())))
+				changes.put(entry.getKey(), entry.getValue());
+	}
+
+	private static void collect(Object slot, Map<String, Object> target) {
+		if (slot == null)
+			return;
+		if (slot instanceof Leaf) {
+			Leaf leaf = (Leaf) slot;
+			target.put(leaf.getKey(), leaf.getValue());
+			return;
+		}
+		for (Object child : ((Node) slot).children())
+			collect(child, target);
+	}
+
+	private static int hash(Object key) {
+		int hash = key.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int fragment(int hash, int shift) {
+		return (hash >>> shift) & MASK;
+	}
+
+	/**
+	 * Returns a node holding both leaves, which have different keys, below
+	 * the given shift.
+	 */
+	private static Node merge(Leaf a, Leaf b, int shift) {
+		if (shift > MAX_SHIFT)
+			return new CollisionNode(new Leaf[] { a, b });
+		int fa = fragment(a.hash, shift);
+		int fb = fragment(b.hash, shift);
+		if (fa == fb)
+			return new BitmapNode(1 << fa, new Object[] { merge(a, b, shift + BITS) });
+		return new BitmapNode((1 << fa) | (1 << fb), fa < fb ? new Object[] { a, b } : new Object[] { b, a });
+	}
+
+	private static final class Leaf extends AbstractMap.SimpleImmutableEntry<String, Object> {
+		private static final long serialVersionUID = 1L;
+		private final int hash;
+
+		Leaf(String key, Object value, int hash) {
+			super(key, value);
+			this.hash = hash;
+		}
+	}
+
+	private static abstract class Node {
+		abstract Object get(String key, int hash, int shift);
+
+		/**
+		 * Returns a node with the leaf added, replacing the leaf with the
+		 * same key, if any.
+		 */
+		abstract Node put(Leaf leaf, int shift);
+
+		/**
+		 * Returns the node without the given key, which it must hold: a
+		 * {@link Leaf} if a single leaf is left, or null if nothing is left.
+		 */
+		abstract Object remove(String key, int hash, int shift);
+
+		/**
+		 * Returns the leaves and nodes below this node. Not to be modified.
+		 */
+		abstract Object[] children();
+	}
+
+	private static final class BitmapNode extends Node {
+		private final int bitmap;
+		private final Object[] slots;
+
+		BitmapNode(int bitmap, Object[] slots) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		Object slot(int bit) {
+			return (bitmap & bit) == 0 ? null : slots[index(bit)];
+		}
+
+		Object get(String key, int hash, int shift) {
+			Object slot = slot(1 << fragment(hash, shift));
+			if (slot instanceof Leaf) {
+				Leaf leaf = (Leaf) slot;
+				return leaf.hash == hash && leaf.getKey().equals(key) ? leaf.getValue() : null;
+			}
+			return slot == null ? null : ((Node) slot).get(key, hash, shift + BITS);
+		}
+
+		Node put(Leaf leaf, int shift) {
+			int bit = 1 << fragment(leaf.hash, shift);
+			int index = index(bit);
+			if ((bitmap & bit) == 0) {
+				Object[] copy = new Object[slots.length + 1];
+				System.arraycopy(slots, 0, copy, 0, index);
+				copy[index] = leaf;
+				System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+				return new BitmapNode(bitmap | bit, copy);
+			}
+			Object slot = slots[index];
+			Object replacement;
+			if (slot instanceof Leaf) {
+				Leaf existing = (Leaf) slot;
+				if (existing.hash == leaf.hash && existing.getKey().equals(leaf.getKey()))
+					replacement = leaf;
+				else
+					replacement = merge(existing, leaf, shift + BITS);
+			} else {
+				replacement = ((Node) slot).put(leaf, shift + BITS);
+			}
+			Object[] copy = slots.clone();
+			copy[index] = replacement;
+			return new BitmapNode(bitmap, copy);
+		}
+
+		Object remove(String key, int hash, int shift) {
+			int bit = 1 << fragment(hash, shift);
+			int index = index(bit);
+			Object slot = slots[index];
+			Object replacement = slot instanceof Leaf ? null : ((Node) slot).remove(key, hash, shift + BITS);
+			if (replacement != null) {
+				if (slots.length == 1 && replacement instanceof Leaf && shift > 0)
+					return replacement;
+				Object[] copy = slots.clone();
+				copy[index] = replacement;
+				return new BitmapNode(bitmap, copy);
+			}
+			if (slots.length == 1)
+				return null;
+			if (slots.length == 2 && shift > 0 && slots[1 - index] instanceof Leaf)
+				return slots[1 - index];
+			Object[] copy = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, copy, 0, index);
+			System.arraycopy(slots, index + 1, copy, index, slots.length - index - 1);
+			return new BitmapNode(bitmap & ~bit, copy);
+		}
+
+		Object[] children() {
+			return slots;
+		}
+	}
+
+	/**
+	 * Holds the leaves whose keys have the same hash.
+	 */
+	private static final class CollisionNode extends Node {
+		private final Leaf[] leaves;
+
+		CollisionNode(Leaf[] leaves) {
+			this.leaves = leaves;
+		}
+
+		private int indexOf(String key) {
+			for (int i = 0; i < leaves.length; i++)
+				if (leaves[i].getKey().equals(key))
+					return i;
+			return -1;
+		}
+
+		Object get(String key, int hash, int shift) {
+			int index = indexOf(key);
+			return index < 0 ? null : leaves[index].getValue();
+		}
+
+		Node put(Leaf leaf, int shift) {
+			int index = indexOf(leaf.getKey());
+			Leaf[] copy;
+			if (index < 0) {
+				copy = new Leaf[leaves.length + 1];
+				System.arraycopy(leaves, 0, copy, 0, leaves.length);
+				copy[leaves.length] = leaf;
+			} else {
+				copy = leaves.clone();
+				copy[index] = leaf;
+			}
+			return new CollisionNode(copy);
+		}
+
+		Object remove(String key, int hash, int shift) {
+			int index = indexOf(key);
+			if (leaves.length == 2)
+				return leaves[1 - index];
+			Leaf[] copy = new Leaf[leaves.length - 1];
+			System.arraycopy(leaves, 0, copy, 0, index);
+			System.arraycopy(leaves, index + 1, copy, index, leaves.length - index - 1);
+			return new CollisionNode(copy);
+		}
+
+		Object[] children() {
+			return leaves;
+		}
+	}
+
+	/**
+	 * Walks the trie depth first without allocating per entry.
+	 */
+	private static final class EntryIterator<V> implements Iterator<Entry<String, V>> {
+		private final Object[][] arrays = new Object[MAX_DEPTH][];
+		private final int[] positions = new int[MAX_DEPTH];
+		private int depth;
+		private Leaf next;
+
+		EntryIterator(Node root) {
+			push(root);
+			advance();
+		}
+
+		private void push(Node node) {
+			arrays[depth] = node.children();
+			positions[depth] = 0;
+			depth++;
+		}
+
+		private void advance() {
+			while (depth > 0) {
+				Object[] array = arrays[depth - 1];
+				int position = positions[depth - 1];
+				if (position == array.length) {
+					arrays[--depth] = null;
+					continue;
+				}
+				positions[depth - 1] = position + 1;
+				Object slot = array[position];
+				if (slot instanceof Leaf) {
+					next = (Leaf) slot;
+					return;
+				}
+				push((Node) slot);
+			}
+			next = null;
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		public Entry<String, V> next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			Leaf leaf = next;
+			advance();
+			return (Entry<String, V>) (Entry<String, ?>) leaf;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -16,30 +16,47 @@
 
 package org.trendafilov.confucius.core;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 class StreamConfigurationDataProvider implements ConfigurationDataProvider {
 
-	private InputStream inputStream;
+	private final InputStream inputStream;
+	private ByteBuffer content;
 
 	public StreamConfigurationDataProvider(InputStream inputStream) {
 		this.inputStream = inputStream;
 	}
 
 	public List<String> getAllLines() throws IOException {
-		if (inputStream == null)
-			return new ArrayList<>();
-		String configurationString = Utils.streamToString(inputStream);
-		this.inputStream = new ByteArrayInputStream(configurationString.getBytes("UTF-8"));
-		return new ArrayList<>(Arrays.asList(configurationString.split("\\r?\\n")));
+		return Utils.lines(getText());
+	}
+
+	/**
+	 * Malformed input is replaced rather than rejected, so that streams which
+	 * are not UTF-8 still load.
+	 */
+	public CharSequence getText() throws IOException {
+		return decode(getContent());
+	}
+
+	public CharSequence decode(ByteBuffer content) throws IOException {
+		return Utils.decodeLeniently(content);
 	}
 
 	public InputStream getInputStream() throws IOException {
-		return inputStream;
+		return new ByteBufferInputStream(getContent());
+	}
+
+	/**
+	 * The stream is consumed on the first call; its bytes are kept so that
+	 * the configuration can be re-processed, e.g. on reset.
+	 */
+	public synchronized ByteBuffer getContent() throws IOException {
+		if (content == null)
+			content = inputStream == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(Utils.streamToBytes(inputStream));
+		return content.asReadOnlyBuffer();
 	}
 }
@@ -0,0 +1,137 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits separated configuration values in a single pass, returning the
+ * bounds of every trimmed item instead of allocating a substring per item.
+ * <p>
+ * The result is identical to {@code value.split(separator)} followed by
+ * {@code trim()} on each item. Like {@link String#split(String)},
+ * separators made up of a single non-special character (or an escaped one)
+ * are matched literally, while everything else is treated as a regular
+ * expression. Compiled patterns are cached per separator.
+ * </p>
+ */
+class Tokenizer {
+	private final static String REGEX_CHARS = ".$|()[{^?*+\\";
+	private final static int MAX_CACHED_PATTERNS = 256;
+	private final static ConcurrentMap<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+	private Tokenizer() {
+	}
+
+	/**
+	 * Returns the item bounds as consecutive <tt>[start, end)</tt> pairs, so
+	 * item <tt>i</tt> spans <tt>bounds[2 * i]</tt> to
+	 * <tt>bounds[2 * i + 1]</tt>.
+	 */
+	static int[] tokenize(String value, String separator) {
+		char literal = literal(separator);
+		return literal == 0 ? split(value, pattern(separator)) : split(value, literal);
+	}
+
+	private static char literal(String separator) {
+		if (separator.length() == 1 && REGEX_CHARS.indexOf(separator.charAt(0)) < 0)
+			return separator.charAt(0);
+		if (separator.length() == 2 && separator.charAt(0) == '\\') {
+			char ch = separator.charAt(1);
+			if (!isAsciiLetterOrDigit(ch) && !Character.isHighSurrogate(ch) && !Character.isLowSurrogate(ch))
+				return ch;
+		}
+		return 0;
+	}
+
+	private static boolean isAsciiLetterOrDigit(char ch) {
+		return (ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+	}
+
+	private static Pattern pattern(String separator) {
+		Pattern pattern = PATTERNS.get(separator);
+		if (pattern == null) {
+			pattern = Pattern.compile(separator);
+			if (PATTERNS.size() < MAX_CACHED_PATTERNS)
+				PATTERNS.putIfAbsent(separator, pattern);
+		}
+		return pattern;
+	}
+
+	private static int[] split(String value, char separator) {
+		int end = value.length();
+		if (value.indexOf(separator) < 0)
+			return trim(value, new int[] { 0, end }, 1);
+		while (end > 0 && value.charAt(end - 1) == separator)
+			end--;
+		int[] bounds = new int[8];
+		int count = 0;
+		for (int start = 0; start < end;) {
+			int next = value.indexOf(separator, start);
+			if (next < 0 || next > end)
+				next = end;
+			bounds = add(bounds, count++, start, next);
+			start = next + 1;
+		}
+		return trim(value, bounds, count);
+	}
+
+	private static int[] split(String value, Pattern pattern) {
+		Matcher matcher = pattern.matcher(value);
+		int[] bounds = new int[8];
+		int count = 0;
+		int index = 0;
+		while (matcher.find()) {
+			if (index == 0 && matcher.start() == 0 && matcher.end() == 0)
+				continue;
+			bounds = add(bounds, count++, index, matcher.start());
+			index = matcher.end();
+		}
+		if (count == 0)
+			return trim(value, new int[] { 0, value.length() }, 1);
+		bounds = add(bounds, count++, index, value.length());
+		while (count > 0 && bounds[2 * count - 2] == bounds[2 * count - 1])
+			count--;
+		return trim(value, bounds, count);
+	}
+
+	private static int[] add(int[] bounds, int index, int start, int end) {
+		if (2 * index + 1 >= bounds.length)
+			bounds = Arrays.copyOf(bounds, bounds.length * 2);
+		bounds[2 * index] = start;
+		bounds[2 * index + 1] = end;
+		return bounds;
+	}
+
+	private static int[] trim(String value, int[] bounds, int count) {
+		for (int i = 0; i < 2 * count; i += 2) {
+			int start = bounds[i];
+			int end = bounds[i + 1];
+			while (start < end && value.charAt(start) <= ' ')
+				start++;
+			while (start < end && value.charAt(end - 1) <= ' ')
+				end--;
+			bounds[i] = start;
+			bounds[i + 1] = end;
+		}
+		return bounds.length == 2 * count ? bounds : Arrays.copyOf(bounds, 2 * count);
+	}
+}
@@ -16,13 +16,23 @@
 
 package org.trendafilov.confucius.core;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.zip.CRC32;
 
 class Utils {
 	private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
@@ -52,4 +62,79 @@ class Utils {
 		return output.toString();
 	}
 
+	static byte[] streamToBytes(InputStream input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+		int n = 0;
+		while (-1 != (n = input.read(buffer))) {
+			output.write(buffer, 0, n);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Decodes UTF-8 content without consuming the given buffer, failing on
+	 * malformed input like {@link Files#readAllLines(Path, java.nio.charset.Charset)}.
+	 */
+	static CharBuffer decode(ByteBuffer content) throws IOException {
+		return StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT)
+				.decode(content.duplicate());
+	}
+
+	/**
+	 * Decodes UTF-8 content without consuming the given buffer, replacing
+	 * malformed input like {@link java.io.InputStreamReader}, so that streams
+	 * in other encodings still load.
+	 */
+	static CharBuffer decodeLeniently(ByteBuffer content) throws IOException {
+		return StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE)
+				.decode(content.duplicate());
+	}
+
+	/**
+	 * Splits text into lines terminated by \n, \r or \r\n, the same way
+	 * {@link java.io.BufferedReader#readLine()} does.
+	 */
+	static List<String> lines(CharSequence text) {
+		List<String> lines = new ArrayList<>();
+		int length = text.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || c == '\r') {
+				lines.add(text.subSequence(start, i).toString());
+				if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n')
+					i++;
+				start = i + 1;
+			}
+		}
+		if (start < length)
+			lines.add(text.subSequence(start, length).toString());
+		return lines;
+	}
+
+	/**
+	 * Returns the checksum of the content, computed as by
+	 * {@link #checksum(Path)}, without consuming the given buffer.
+	 */
+	static long checksum(ByteBuffer content) {
+		CRC32 crc = new CRC32();
+		crc.update(content.duplicate());
+		return crc.getValue();
+	}
+
+	static long checksum(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+		try (InputStream input = Files.newInputStream(file)) {
+			int n;
+			while (-1 != (n = input.read(buffer)))
+				crc.update(buffer, 0, n);
+		}
+		return crc.getValue();
+	}
 }
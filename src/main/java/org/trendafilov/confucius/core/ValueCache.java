@@ -0,0 +1,161 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memoizes converted configuration values per key and per type.
+ * <p>
+ * Every cached entry remembers the raw string it was converted from, and is
+ * only used while the configuration still holds that exact string. A reader
+ * racing with a writer can therefore never be served a stale value, even
+ * before the writer has invalidated the key.
+ * </p>
+ * <p>
+ * When the cache is full, an entry is evicted by the second-chance (clock)
+ * policy: every hit marks its entry as referenced, and eviction clears the
+ * marks of the entries it passes until it finds one which was not used
+ * since, so frequently read keys survive a stream of one-off reads without
+ * serializing readers on an access order.
+ * </p>
+ */
+class ValueCache {
+	static final ValueCache DISABLED = new ValueCache(0);
+
+	private final int capacity;
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	ValueCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	<T> T get(String key, String raw, ValueConverter<T> converter) {
+		if (capacity <= 0)
+			return converter.convert(raw);
+		Entry entry = entry(key, raw);
+		@SuppressWarnings("unchecked")
+		T value = (T) entry.values.get(converter.index());
+		if (value == null) {
+			value = converter.convert(raw);
+			entry.values.set(converter.index(), value);
+		}
+		return value;
+	}
+
+	<T> List<T> getList(String key, String raw, String separator, ValueConverter<T> converter) {
+		if (capacity <= 0)
+			return converter.convertList(raw, separator);
+		Entry entry = entry(key, raw);
+		SeparatedValue cached = entry.lists.get(converter.index());
+		if (cached != null && cached.separator.equals(separator)) {
+			@SuppressWarnings("unchecked")
+			List<T> list = (List<T>) cached.value;
+			return list;
+		}
+		List<T> list = converter.convertList(raw, separator);
+		entry.lists.set(converter.index(), new SeparatedValue(separator, list));
+		return list;
+	}
+
+	/**
+	 * Returns the cached primitive array for the key. Callers must copy the
+	 * array before handing it out, as it is shared between readers.
+	 */
+	<T> Object getArray(String key, String raw, String separator, ValueConverter<T> converter) {
+		if (capacity <= 0)
+			return converter.convertArray(raw, separator);
+		Entry entry = entry(key, raw);
+		SeparatedValue cached = entry.arrays.get(converter.index());
+		if (cached != null && cached.separator.equals(separator))
+			return cached.value;
+		Object array = converter.convertArray(raw, separator);
+		entry.arrays.set(converter.index(), new SeparatedValue(separator, array));
+		return array;
+	}
+
+	void invalidate(String key) {
+		entries.remove(key);
+	}
+
+	void invalidateAll() {
+		entries.clear();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private Entry entry(String key, String raw) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.raw == raw) {
+			if (!entry.referenced)
+				entry.referenced = true;
+			return entry;
+		}
+		entry = new Entry(raw);
+		if (entries.size() >= capacity && !entries.containsKey(key))
+			evictOne();
+		entries.put(key, entry);
+		return entry;
+	}
+
+	/**
+	 * Evicts the first entry which was not used since eviction last passed
+	 * it. If every entry was used, the second pass evicts the first one.
+	 */
+	private void evictOne() {
+		for (int pass = 0; pass < 2; pass++) {
+			Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next().getValue();
+				if (!entry.referenced) {
+					iterator.remove();
+					return;
+				}
+				entry.referenced = false;
+			}
+		}
+	}
+
+	private static class Entry {
+		private final String raw;
+		private final AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(ValueConverter.COUNT);
+		private final AtomicReferenceArray<SeparatedValue> lists = new AtomicReferenceArray<>(ValueConverter.COUNT);
+		private final AtomicReferenceArray<SeparatedValue> arrays = new AtomicReferenceArray<>(ValueConverter.COUNT);
+		private volatile boolean referenced;
+
+		Entry(String raw) {
+			this.raw = raw;
+		}
+	}
+
+	private static class SeparatedValue {
+		private final String separator;
+		private final Object value;
+
+		SeparatedValue(String separator, Object value) {
+			this.separator = separator;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+abstract class ValueConverter<T> {
+	static final ValueConverter<Boolean> BOOLEAN = new ValueConverter<Boolean>(0, null) {
+		Boolean convert(String value) {
+			return Boolean.parseBoolean(value);
+		}
+
+		Boolean convert(String value, int start, int end) {
+			return NumberParser.parseBoolean(value, start, end);
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			boolean[] array = new boolean[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = NumberParser.parseBoolean(value, bounds[2 * i], bounds[2 * i + 1]);
+			return array;
+		}
+	};
+
+	static final ValueConverter<Byte> BYTE = new ValueConverter<Byte>(1, "byte") {
+		Byte convert(String value) {
+			return Byte.parseByte(value);
+		}
+
+		Byte convert(String value, int start, int end) {
+			return NumberParser.parseByte(value, start, end);
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			byte[] array = new byte[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = NumberParser.parseByte(value, bounds[2 * i], bounds[2 * i + 1]);
+			return array;
+		}
+	};
+
+	static final ValueConverter<Character> CHAR = new ValueConverter<Character>(2, null) {
+		Character convert(String value) {
+			return value.charAt(0);
+		}
+
+		Character convert(String value, int start, int end) {
+			return NumberParser.parseChar(value, start, end);
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			char[] array = new char[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = NumberParser.parseChar(value, bounds[2 * i], bounds[2 * i + 1]);
+			return array;
+		}
+	};
+
+	static final ValueConverter<Double> DOUBLE = new ValueConverter<Double>(3, null) {
+		Double convert(String value) {
+			return Double.parseDouble(value);
+		}
+
+		Double convert(String value, int start, int end) {
+			return Double.parseDouble(value.substring(start, end));
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			double[] array = new double[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = Double.parseDouble(value.substring(bounds[2 * i], bounds[2 * i + 1]));
+			return array;
+		}
+	};
+
+	static final ValueConverter<Float> FLOAT = new ValueConverter<Float>(4, null) {
+		Float convert(String value) {
+			return Float.parseFloat(value);
+		}
+
+		Float convert(String value, int start, int end) {
+			return Float.parseFloat(value.substring(start, end));
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			float[] array = new float[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = Float.parseFloat(value.substring(bounds[2 * i], bounds[2 * i + 1]));
+			return array;
+		}
+	};
+
+	static final ValueConverter<Integer> INT = new ValueConverter<Integer>(5, null) {
+		Integer convert(String value) {
+			return Integer.parseInt(value);
+		}
+
+		Integer convert(String value, int start, int end) {
+			return NumberParser.parseInt(value, start, end);
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			int[] array = new int[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = NumberParser.parseInt(value, bounds[2 * i], bounds[2 * i + 1]);
+			return array;
+		}
+	};
+
+	static final ValueConverter<Long> LONG = new ValueConverter<Long>(6, "long") {
+		Long convert(String value) {
+			return Long.parseLong(value);
+		}
+
+		Long convert(String value, int start, int end) {
+			return NumberParser.parseLong(value, start, end);
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			long[] array = new long[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = NumberParser.parseLong(value, bounds[2 * i], bounds[2 * i + 1]);
+			return array;
+		}
+	};
+
+	static final ValueConverter<Short> SHORT = new ValueConverter<Short>(7, "short") {
+		Short convert(String value) {
+			return Short.parseShort(value);
+		}
+
+		Short convert(String value, int start, int end) {
+			return NumberParser.parseShort(value, start, end);
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			short[] array = new short[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = NumberParser.parseShort(value, bounds[2 * i], bounds[2 * i + 1]);
+			return array;
+		}
+	};
+
+	static final ValueConverter<String> STRING = new ValueConverter<String>(8, null) {
+		String convert(String value) {
+			return value;
+		}
+
+		String convert(String value, int start, int end) {
+			return value.substring(start, end);
+		}
+
+		Object convertArray(String value, String separator) {
+			int[] bounds = Tokenizer.tokenize(value, separator);
+			String[] array = new String[bounds.length / 2];
+			for (int i = 0; i < array.length; i++)
+				array[i] = value.substring(bounds[2 * i], bounds[2 * i + 1]);
+			return array;
+		}
+	};
+
+	static final int COUNT = 9;
+
+	private final int index;
+	private final String typeName;
+
+	private ValueConverter(int index, String typeName) {
+		this.index = index;
+		this.typeName = typeName;
+	}
+
+	abstract T convert(String value);
+
+	/**
+	 * Converts the item found between <tt>start</tt> (inclusive) and
+	 * <tt>end</tt> (exclusive) of a separated value.
+	 */
+	abstract T convert(String value, int start, int end);
+
+	List<T> convertList(String value, String separator) {
+		int[] bounds = Tokenizer.tokenize(value, separator);
+		List<T> parts = new ArrayList<>(bounds.length / 2);
+		for (int i = 0; i < bounds.length; i += 2)
+			parts.add(convert(value, bounds[i], bounds[i + 1]));
+		return Collections.unmodifiableList(parts);
+	}
+
+	/**
+	 * Converts the separated items straight into an array of the matching
+	 * primitive type, e.g. {@code int[]} for {@link #INT}, or into a
+	 * {@code String[]} for {@link #STRING}.
+	 */
+	abstract Object convertArray(String value, String separator);
+
+	int index() {
+		return index;
+	}
+
+	RuntimeException describe(String key, NumberFormatException e) {
+		if (typeName == null)
+			return e;
+		return new NumberFormatException(String.format("Configuration value [%s] is not a parsable %s", key, typeName));
+	}
+}
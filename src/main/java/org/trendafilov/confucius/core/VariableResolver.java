@@ -0,0 +1,223 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Substitutes <tt>${key}</tt> references in configuration values, anywhere in
+ * a value, e.g. <tt>jdbc:${db.host}:${db.port}/x</tt>.
+ * <p/>
+ * <p>
+ * References form a graph which is resolved depth-first, so each value is
+ * substituted once, after the values it refers to, and the time taken is
+ * linear in the total length of the values. A reference is left as is if the
+ * referenced key is missing, cannot be fully resolved itself, or is part of a
+ * cycle; cycles are logged.
+ * </p>
+ */
+class VariableResolver {
+	private final static Logger LOG = LoggerFactory.getLogger(VariableResolver.class);
+
+	private final static String LEFT_SUBSTITUTION = "${";
+	private final static char RIGHT_SUBSTITUTION = '}';
+
+	private final Map<String, String> configuration;
+	private final Map<String, Resolved> known;
+	private final Map<String, Resolved> resolved;
+
+	/**
+	 * The keys being resolved, from the first one visited to the last.
+	 */
+	private final LinkedHashSet<String> path = new LinkedHashSet<>();
+
+	/**
+	 * Creates a resolver of the given configuration, which is not modified.
+	 * Resolved values are stored in, and reused from, the given map, which
+	 * may be shared by resolvers of the same configuration.
+	 */
+	VariableResolver(Map<String, String> configuration, Map<String, Resolved> resolved) {
+		this(configuration, null, resolved);
+	}
+
+	/**
+	 * Creates a resolver of the given configuration which reuses the values
+	 * resolved earlier in <tt>known</tt>, without modifying it, and stores the
+	 * values it resolves itself in <tt>resolved</tt>.
+	 */
+	VariableResolver(Map<String, String> configuration, Map<String, Resolved> known, Map<String, Resolved> resolved) {
+		this.configuration = configuration;
+		this.known = known;
+		this.resolved = resolved;
+	}
+
+	/**
+	 * Substitutes all references in the given configuration, in place.
+	 */
+	static Map<String, String> resolve(Map<String, String> configuration) {
+		VariableResolver resolver = new VariableResolver(configuration, new HashMap<String, Resolved>());
+		for (String key : configuration.keySet())
+			resolver.get(key);
+		for (Entry<String, Resolved> entry : resolver.resolved.entrySet())
+			configuration.put(entry.getKey(), entry.getValue().value);
+		return configuration;
+	}
+
+	static boolean hasReferences(String value) {
+		return value.contains(LEFT_SUBSTITUTION);
+	}
+
+	static List<String> references(String value) {
+		List<String> references = new ArrayList<>();
+		int start = value.indexOf(LEFT_SUBSTITUTION);
+		while (start >= 0) {
+			int end = value.indexOf(RIGHT_SUBSTITUTION, start + LEFT_SUBSTITUTION.length());
+			if (end < 0)
+				break;
+			references.add(value.substring(start + LEFT_SUBSTITUTION.length(), end));
+			start = value.indexOf(LEFT_SUBSTITUTION, end + 1);
+		}
+		return references;
+	}
+
+	/**
+	 * Returns the value of the given key with its references substituted, or
+	 * null if the key is missing.
+	 */
+	String get(String key) {
+		Resolved value = lookup(key);
+		if (value == null) {
+			if (!configuration.containsKey(key))
+				return null;
+			resolve(key);
+			value = resolved.get(key);
+		}
+		return value.value;
+	}
+
+	private Resolved lookup(String key) {
+		Resolved value = resolved.get(key);
+		if (value == null && known != null)
+			value = known.get(key);
+		return value;
+	}
+
+	private void resolve(String root) {
+		Deque<String> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			String key = stack.peek();
+			if (lookup(key) != null) {
+				stack.pop();
+				continue;
+			}
+			if (path.add(key) && visit(key, stack))
+				continue;
+			stack.pop();
+			path.remove(key);
+			resolved.put(key, substitute(configuration.get(key)));
+		}
+	}
+
+	/**
+	 * Pushes the unresolved keys the value of the given key refers to, and
+	 * tells whether there were any.
+	 */
+	private boolean visit(String key, Deque<String> stack) {
+		boolean pushed = false;
+		for (String reference : references(configuration.get(key))) {
+			if (!configuration.containsKey(reference) || lookup(reference) != null)
+				continue;
+			if (path.contains(reference)) {
+				reportCycle(reference);
+				continue;
+			}
+			stack.push(reference);
+			pushed = true;
+		}
+		return pushed;
+	}
+
+	/**
+	 * Replaces the references in the given value with the values of the
+	 * referenced keys, which must have been resolved already.
+	 */
+	private Resolved substitute(String value) {
+		int start = value.indexOf(LEFT_SUBSTITUTION);
+		if (start < 0)
+			return new Resolved(value, true);
+		boolean complete = true;
+		StringBuilder builder = new StringBuilder(value.length());
+		int position = 0;
+		while (start >= 0) {
+			int end = value.indexOf(RIGHT_SUBSTITUTION, start + LEFT_SUBSTITUTION.length());
+			if (end < 0)
+				break;
+			Resolved reference = lookup(value.substring(start + LEFT_SUBSTITUTION.length(), end));
+			builder.append(value, position, start);
+			if (reference != null && reference.complete) {
+				builder.append(reference.value);
+			} else {
+				builder.append(value, start, end + 1);
+				complete = false;
+			}
+			position = end + 1;
+			start = value.indexOf(LEFT_SUBSTITUTION, position);
+		}
+		builder.append(value, position, value.length());
+		return new Resolved(builder.toString(), complete);
+	}
+
+	private void reportCycle(String reference) {
+		StringBuilder cycle = new StringBuilder();
+		boolean inside = false;
+		for (String key : path) {
+			inside |= key.equals(reference);
+			if (inside)
+				cycle.append(key).append(" -> ");
+		}
+		LOG.warn("Circular variable substitution, leaving references unresolved: {}", cycle.append(reference));
+	}
+
+	/**
+	 * A value with its references substituted, and whether all of them could
+	 * be.
+	 */
+	static final class Resolved {
+		private final String value;
+		private final boolean complete;
+
+		Resolved(String value, boolean complete) {
+			this.value = value;
+			this.complete = complete;
+		}
+
+		String getValue() {
+			return value;
+		}
+	}
+}
@@ -16,11 +16,18 @@
 
 package org.trendafilov.confucius;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -42,6 +49,32 @@ public class ConfigurationTest {
 		assertFalse(Configuration.getInstance().keySet().isEmpty());
 	}
 
+	@Test
+	public void testPreload() throws Exception {
+		Future<Configuration> preload = Configuration.preload();
+		assertSame(config, preload.get(10, TimeUnit.SECONDS));
+		assertSame(preload, Configuration.preload());
+		assertEquals(Configuration.Status.LOADED, Configuration.getStatus());
+		assertTrue(Configuration.getLoadTime(TimeUnit.NANOSECONDS) > 0);
+	}
+
+	@Test
+	public void testPreloadRecoversAfterFailure() throws Exception {
+		Configuration.unload();
+		System.setProperty("conf.properties", "/nonexistent/confucius.properties");
+		try {
+			Configuration.preload().get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertEquals(Configuration.Status.FAILED, Configuration.getStatus());
+		}
+		System.clearProperty("conf.properties");
+		config = Configuration.getInstance();
+		Future<Configuration> preload = Configuration.preload();
+		assertTrue(preload.isDone());
+		assertSame(config, preload.get());
+	}
+
 	@Test
 	public void testBooleanDefaultReturn() {
 		assertFalse(config.getBooleanValue(TEST_KEY, false));
@@ -91,7 +124,8 @@ public class ConfigurationTest {
 	@Test
 	public void testPropertySetAndGet() {
 		config.setProperty(TEST_KEY, "value");
-		assertEquals("value", System.getProperty(TEST_KEY));
+		assertEquals("value", config.getStringValue(TEST_KEY));
+		assertNull(System.getProperty(TEST_KEY));
 	}
 
 	@Test
@@ -226,6 +260,63 @@ public class ConfigurationTest {
 		assertEquals("third", config.getStringList(TEST_KEY).get(2));
 	}
 
+	@Test
+	public void testBooleanArray() {
+		config.setProperty(TEST_KEY, "true, false");
+		assertArrayEquals(new boolean[] { true, false }, config.getBooleanArray(TEST_KEY));
+	}
+
+	@Test
+	public void testByteArray() {
+		config.setProperty(TEST_KEY, "5, 10");
+		assertArrayEquals(new byte[] { 5, 10 }, config.getByteArray(TEST_KEY));
+	}
+
+	@Test
+	public void testCharArray() {
+		config.setProperty(TEST_KEY, "A,B");
+		assertArrayEquals(new char[] { 'A', 'B' }, config.getCharArray(TEST_KEY));
+	}
+
+	@Test
+	public void testDoubleArray() {
+		config.setProperty(TEST_KEY, "10.0,20.0");
+		assertArrayEquals(new double[] { 10.0, 20.0 }, config.getDoubleArray(TEST_KEY), 0.1);
+	}
+
+	@Test
+	public void testFloatArray() {
+		config.setProperty(TEST_KEY, "321.00, 333.1");
+		assertArrayEquals(new float[] { 321.00f, 333.1f }, config.getFloatArray(TEST_KEY), 0.1f);
+	}
+
+	@Test
+	public void testIntArray() {
+		config.setProperty(TEST_KEY, "123,321, 999");
+		assertArrayEquals(new int[] { 123, 321, 999 }, config.getIntArray(TEST_KEY));
+		config.setProperty(TEST_KEY, "1;2");
+		assertArrayEquals(new int[] { 1, 2 }, config.getIntArray(TEST_KEY, ";"));
+	}
+
+	@Test
+	public void testLongArray() {
+		config.setProperty(TEST_KEY, "923954957346,823954957346");
+		assertArrayEquals(new long[] { 923954957346L, 823954957346L }, config.getLongArray(TEST_KEY));
+	}
+
+	@Test
+	public void testShortArray() {
+		config.setProperty(TEST_KEY, "123, 321");
+		assertArrayEquals(new short[] { 123, 321 }, config.getShortArray(TEST_KEY));
+	}
+
+	@Test
+	public void testArrayIsCopiedOnRead() {
+		config.setProperty(TEST_KEY, "1,2");
+		config.getIntArray(TEST_KEY)[0] = 5;
+		assertEquals(1, config.getIntArray(TEST_KEY)[0]);
+	}
+
 	@Test
 	public void testGetProperties() {
 		Properties props = config.getProperties();
@@ -322,6 +413,17 @@ public class ConfigurationTest {
 		config.getLongList(TEST_KEY, "!");
 	}
 
+	@Test(expected = ConfigurationException.class)
+	public void testMissingIntArrayKey() {
+		config.getIntArray(TEST_KEY, "!");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testNotParsableLongArray() {
+		config.setProperty(TEST_KEY, "empty");
+		config.getLongArray(TEST_KEY);
+	}
+
 	@Test
 	public void testSetProperties() {
 		Properties props = new Properties();
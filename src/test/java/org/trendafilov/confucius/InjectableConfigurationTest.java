@@ -18,6 +18,8 @@ package org.trendafilov.confucius;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
@@ -25,9 +27,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Test;
+import org.trendafilov.confucius.core.ConfigurationDiff;
 
 public class InjectableConfigurationTest {
 	private final static String TEST_CONTEXT = "Test2";
@@ -61,6 +66,54 @@ public class InjectableConfigurationTest {
 		assertEquals("value123", config.getStringValue("key123"));
 	}
 
+	@Test
+	public void testLatin1InputStream() throws IOException {
+		InputStream inputStream = new ByteArrayInputStream("name=Jos\u00e9\n".getBytes("ISO-8859-1"));
+		InjectableConfiguration config = new InjectableConfiguration(inputStream, null);
+		assertEquals("Jos\u00e9", config.getStringValue("name"));
+	}
+
+	@Test
+	public void testLatin1ContextInputStream() throws IOException {
+		InputStream inputStream = new ByteArrayInputStream("[Default]\nname=Jos\u00e9\ncity=Sofia\n".getBytes("ISO-8859-1"));
+		InjectableConfiguration config = new InjectableConfiguration(inputStream, null);
+		assertEquals("Sofia", config.getStringValue("city"));
+		assertTrue(config.getStringValue("name").startsWith("Jos"));
+	}
+
+	@Test
+	public void testStreamingInputStream() throws IOException {
+		System.setProperty("conf.streaming", "true");
+		InputStream inputStream = new ByteArrayInputStream("[Default]\nkey123=value123\n".getBytes("UTF-8"));
+		InjectableConfiguration config = new InjectableConfiguration(inputStream, null);
+		assertEquals("value123", config.getStringValue("key123"));
+		config.setProperty("key123", "changed");
+		config.reset();
+		assertEquals("value123", config.getStringValue("key123"));
+		assertTrue(config.reload().isEmpty());
+	}
+
+	@Test
+	public void testSwitchContext() throws IOException {
+		String conf = "[Default]\nkey1=default\nkey2=default\n[A]\nkey1=a\n[B : A]\nkey2=b\n";
+		InjectableConfiguration config = new InjectableConfiguration(new ByteArrayInputStream(conf.getBytes("UTF-8")), "A");
+		config.setProperty("runtime", "value");
+		assertEquals("a", config.getStringValue("key1"));
+		ConfigurationDiff diff = config.switchContext("B");
+		assertEquals("b", diff.getChanged().get("key2"));
+		assertEquals("B", config.getContext());
+		assertEquals("B", config.getStringValue("conf.context"));
+		assertEquals("a", config.getStringValue("key1"));
+		assertEquals("b", config.getStringValue("key2"));
+		assertEquals("value", config.getStringValue("runtime"));
+		config.switchContext(null);
+		assertEquals("default", config.getStringValue("key1"));
+		assertNull(config.getContext());
+		config.reset();
+		assertEquals("A", config.getContext());
+		assertEquals("a", config.getStringValue("key1"));
+	}
+
 	@Test
 	public void testTwoArgsConstructorWithoutContext() throws IOException {
 		File temp = writeFile(false);
@@ -72,10 +125,60 @@ public class InjectableConfigurationTest {
 		temp.delete();
 	}
 	
+	@Test
+	public void testMirrorToSystemProperties() throws IOException {
+		File temp = writeFile(true);
+		System.setProperty("conf.mirror", "true");
+		InjectableConfiguration config = new InjectableConfiguration(temp.getAbsolutePath(), TEST_CONTEXT);
+		assertEquals("value456", System.getProperty("key456"));
+		config.setProperty("key789", "value789");
+		assertEquals("value789", System.getProperty("key789"));
+		config.clearProperty("key789");
+		assertNull(System.getProperty("key789"));
+		System.clearProperty("key123");
+		System.clearProperty("key456");
+		temp.delete();
+	}
+
+	@Test
+	public void testNoMirrorByDefault() throws IOException {
+		File temp = writeFile(true);
+		InjectableConfiguration config = new InjectableConfiguration(temp.getAbsolutePath(), TEST_CONTEXT);
+		config.setProperty("key789", "value789");
+		assertEquals("value789", config.getStringValue("key789"));
+		assertNull(System.getProperty("key456"));
+		assertNull(System.getProperty("key789"));
+		temp.delete();
+	}
+
+	@Test
+	public void testSubset() throws IOException {
+		Configurable config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		config.setProperty("db.host", "localhost");
+		config.setProperty("db.port", 5432);
+		config.setProperty("dbx", "other");
+		assertEquals(Arrays.asList("db.host", "db.port"), new ArrayList<>(config.getSubset("db.")));
+		assertEquals("5432", config.getSubsetAsMap("db.").get("db.port"));
+		assertFalse(config.getSubsetAsMap("db.").containsKey("dbx"));
+	}
+
+	@Test
+	public void testSize() {
+		Configurable config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		int size = config.size();
+		assertEquals(config.keySet().size(), size);
+		config.setProperty("db.host", "localhost");
+		assertEquals(size + 1, config.size());
+		config.clearProperty("db.host");
+		assertEquals(size, config.size());
+	}
+
 	@After
 	public void tearDown() {
 		System.clearProperty("conf.properties");
 		System.clearProperty("conf.context");
+		System.clearProperty("conf.mirror");
+		System.clearProperty("conf.streaming");
 	}
 	
 	private File writeFile(boolean hasContext) throws IOException {
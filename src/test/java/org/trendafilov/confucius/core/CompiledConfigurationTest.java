@@ -0,0 +1,147 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class CompiledConfigurationTest {
+	private final static String CONFIGURATION = "[Default]\nkey1=default\nkey2=${key1}\n[Test]\nkey1=test\n[Child : Test]\nkey3=child\n[Broken]\nunparsable\n";
+
+	private Path source;
+	private Path compiled;
+
+	@Before
+	public void setUp() throws IOException {
+		source = Files.createTempFile("confucius", ".cfg");
+		compiled = CompiledConfiguration.compiledPath(source);
+		write(CONFIGURATION);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		System.clearProperty("conf.compile");
+		Files.deleteIfExists(source);
+		Files.deleteIfExists(compiled);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Parser parsed = load();
+		assertTrue(Files.exists(compiled));
+		Parser restored = CompiledConfiguration.read(compiled, CompiledConfiguration.Source.of(source), true);
+		assertNotNull(restored);
+		assertEquals(parsed.getContexts(), restored.getContexts());
+		assertEquals(new HashSet<>(Arrays.asList("Default", "Test", "Child", "Broken")), restored.getContexts());
+		assertEquals(parsed.getConfiguration(null), restored.getConfiguration(null));
+		assertEquals("test", restored.getConfiguration("child").get("key2"));
+		assertEquals("child", restored.getConfiguration("Child").get("key3"));
+		assertEquals(parsed.getConfiguration("Test"), restored.getConfiguration("Test"));
+		try {
+			restored.getConfiguration("Broken");
+		} catch (ConfigurationException e) {
+			assertEquals("Unparsable line: [unparsable]", e.getMessage());
+			return;
+		}
+		throw new AssertionError("Expected the broken context to be restored");
+	}
+
+	@Test
+	public void testStaleWhenSourceChanges() throws IOException {
+		load();
+		FileTime modified = Files.getLastModifiedTime(source);
+		write(CONFIGURATION.replace("key1=test", "key1=TEST"));
+		Files.setLastModifiedTime(source, modified);
+		assertNull(CompiledConfiguration.read(compiled, CompiledConfiguration.Source.of(source), true));
+		assertEquals("TEST", load().getConfiguration("Test").get("key1"));
+		assertNotNull(CompiledConfiguration.read(compiled, CompiledConfiguration.Source.of(source), true));
+	}
+
+	@Test
+	public void testStaleForOtherSubstitutionMode() throws IOException {
+		load();
+		assertNull(CompiledConfiguration.read(compiled, CompiledConfiguration.Source.of(source), false));
+	}
+
+	@Test
+	public void testCorruptFileIsIgnored() throws IOException {
+		load();
+		byte[] bytes = Files.readAllBytes(compiled);
+		Files.write(compiled, Arrays.copyOf(bytes, bytes.length / 2));
+		assertNull(CompiledConfiguration.read(compiled, CompiledConfiguration.Source.of(source), true));
+		assertEquals("test", load().getConfiguration("Test").get("key2"));
+	}
+
+	@Test
+	public void testInvalidLengthsAndReferencesAreIgnored() throws IOException {
+		load();
+		byte[] bytes = Files.readAllBytes(compiled);
+		int header = 4 + 4 + 1 + 8 * 3;
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int strings = buffer.getInt(header);
+		int offset = header + 4;
+		for (int i = 0; i < strings; i++)
+			offset += 4 + buffer.getInt(offset);
+		assertCorrupt(bytes, header, Integer.MAX_VALUE);
+		assertCorrupt(bytes, header + 4, -1);
+		assertCorrupt(bytes, offset + 4, strings);
+		assertEquals("test", load().getConfiguration("Test").get("key2"));
+	}
+
+	@Test
+	public void testConfigurationUsesCompiledFile() throws IOException {
+		System.setProperty("conf.compile", "true");
+		InjectableConfiguration config = new InjectableConfiguration(source.toString(), "Child");
+		assertTrue(Files.exists(compiled));
+		assertEquals("child", config.getStringValue("key3"));
+		config = new InjectableConfiguration(source.toString(), "Child");
+		assertEquals("test", config.getStringValue("key2"));
+		config.switchContext("Test");
+		assertEquals("test", config.getStringValue("key1"));
+	}
+
+	private void assertCorrupt(byte[] bytes, int offset, int value) throws IOException {
+		byte[] corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).putInt(offset, value);
+		Files.write(compiled, corrupt);
+		assertNull(CompiledConfiguration.read(compiled, CompiledConfiguration.Source.of(source), true));
+	}
+
+	private Parser load() {
+		return CompiledConfiguration.load(source, new FileConfigurationDataProvider(source.toString()), true);
+	}
+
+	private void write(String configuration) throws IOException {
+		Files.write(source, configuration.getBytes(StandardCharsets.UTF_8));
+	}
+}
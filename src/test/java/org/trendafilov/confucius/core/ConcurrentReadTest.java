@@ -0,0 +1,90 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class ConcurrentReadTest {
+	private AbstractConfiguration config;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		config.setProperty("int", 42);
+		config.setProperty("list", "1, 2, 3");
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@Test
+	public void testReadsDoNotWaitForWriter() throws Exception {
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Future<?> writer = executor.submit(new Runnable() {
+			public void run() {
+				synchronized (config.getLock()) {
+					writing.countDown();
+					awaitQuietly(release);
+					config.setProperty("int", 43);
+				}
+			}
+		});
+		assertTrue(writing.await(10, TimeUnit.SECONDS));
+		Future<Integer> reader = executor.submit(new Callable<Integer>() {
+			public Integer call() {
+				config.keySet();
+				config.getProperties();
+				config.getIntList("list");
+				config.getStringValue("missing", "default");
+				return config.getIntValue("int");
+			}
+		});
+		assertEquals(42, (int) reader.get(10, TimeUnit.SECONDS));
+		assertFalse(writer.isDone());
+		release.countDown();
+		writer.get(10, TimeUnit.SECONDS);
+		assertEquals(43, config.getIntValue("int"));
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class ConfigKeyTest {
+	private final static String TEST_KEY = "db.pool.size";
+	private InjectableConfiguration config;
+
+	@Before
+	public void setUp() throws IOException {
+		String conf = "[Default]\n" + TEST_KEY + " = 32\n";
+		config = new InjectableConfiguration(new ByteArrayInputStream(conf.getBytes("UTF-8")), null);
+	}
+
+	@Test
+	public void testInitialValue() {
+		ConfigKey<Integer> key = config.intKey(TEST_KEY, 16);
+		assertEquals(TEST_KEY, key.getKey());
+		assertEquals(32, (int) key.get());
+		assertEquals(16, (int) key.getDefaultValue());
+	}
+
+	@Test
+	public void testDefaultValue() {
+		assertEquals(16, (int) config.intKey("missing", 16).get());
+		assertNull(config.stringKey("missing", null).get());
+	}
+
+	@Test
+	public void testFollowsUpdates() {
+		ConfigKey<Integer> key = config.intKey(TEST_KEY, 16);
+		ConfigKey<String> text = config.stringKey(TEST_KEY, "none");
+		config.setProperty(TEST_KEY, 64);
+		assertEquals(64, (int) key.get());
+		assertEquals("64", text.get());
+		Map<String, Object> properties = new HashMap<>();
+		properties.put(TEST_KEY, 128);
+		config.setProperties(properties);
+		assertEquals(128, (int) key.get());
+		config.clearProperty(TEST_KEY);
+		assertEquals(16, (int) key.get());
+		assertEquals("none", text.get());
+	}
+
+	@Test
+	public void testFollowsReset() {
+		ConfigKey<Integer> key = config.intKey(TEST_KEY, 16);
+		ConfigKey<Boolean> flag = config.booleanKey("flag", false);
+		config.setProperty(TEST_KEY, 64);
+		config.setProperty("flag", true);
+		assertTrue(flag.get());
+		config.reset();
+		assertEquals(32, (int) key.get());
+		assertEquals(false, flag.get());
+	}
+
+	@Test
+	public void testUnparsableUpdateIsRejected() {
+		ConfigKey<Long> key = config.longKey(TEST_KEY, 1L);
+		try {
+			config.setProperty(TEST_KEY, "many");
+			fail();
+		} catch (ConfigurationException e) {
+			assertTrue(e.getMessage().contains(TEST_KEY));
+		}
+		assertEquals(32L, (long) key.get());
+		assertEquals("32", config.getStringValue(TEST_KEY));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testUnparsableInitialValue() {
+		config.setProperty(TEST_KEY, "many");
+		config.shortKey(TEST_KEY, (short) 1);
+	}
+}
@@ -0,0 +1,109 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class ConfigurationDiffTest {
+	private File file;
+	private InjectableConfiguration config;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("confuciusDiff", ".cfg");
+		write("[Default]\nkept = 1\nchanged = 1\nremoved = 1\n");
+		config = new InjectableConfiguration(file.getAbsolutePath(), null);
+	}
+
+	@Test
+	public void testReloadAppliesOnlyChanges() {
+		write("[Default]\nkept = 1\nchanged = 2\nadded = 3\n");
+		ConfigurationDiff diff = config.reload();
+		assertEquals(3, diff.size());
+		assertEquals("3", diff.getAdded().get("added"));
+		assertEquals("2", diff.getChanged().get("changed"));
+		assertTrue(diff.getRemoved().contains("removed"));
+		assertEquals(2, config.getIntValue("changed"));
+		assertEquals(3, config.getIntValue("added"));
+		assertFalse(config.keySet().contains("removed"));
+	}
+
+	@Test
+	public void testReloadWithoutChanges() {
+		assertTrue(config.reload().isEmpty());
+	}
+
+	@Test
+	public void testReloadKeepsRuntimeOverrides() {
+		config.setProperty("kept", 10);
+		config.setProperty("runtime", "value");
+		write("[Default]\nkept = 1\nchanged = 2\nremoved = 1\n");
+		ConfigurationDiff diff = config.reload();
+		assertEquals(1, diff.size());
+		assertEquals(10, config.getIntValue("kept"));
+		assertEquals("value", config.getStringValue("runtime"));
+	}
+
+	@Test
+	public void testRemovedKeyFallsBackToInitialValue() {
+		write("[Default]\nkept = 1\nchanged = 1\nremoved = 1\njava.version = overridden\n");
+		config.reload();
+		assertEquals("overridden", config.getStringValue("java.version"));
+		write("[Default]\nkept = 1\nchanged = 1\nremoved = 1\n");
+		ConfigurationDiff diff = config.reload();
+		assertEquals(System.getProperty("java.version"), diff.getChanged().get("java.version"));
+		assertEquals(System.getProperty("java.version"), config.getStringValue("java.version"));
+	}
+
+	@Test
+	public void testResetAfterReload() {
+		config.setProperty("runtime", "value");
+		write("[Default]\nkept = 1\n");
+		config.reset();
+		assertFalse(config.keySet().contains("runtime"));
+		assertFalse(config.keySet().contains("changed"));
+		assertEquals(1, config.getIntValue("kept"));
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private void write(String content) {
+		try {
+			PrintWriter writer = new PrintWriter(file, "UTF-8");
+			writer.print(content);
+			writer.close();
+		} catch (FileNotFoundException | UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
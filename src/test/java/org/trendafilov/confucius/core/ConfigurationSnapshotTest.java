@@ -0,0 +1,206 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.ConfigurationView;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class ConfigurationSnapshotTest {
+	private File file;
+	private InjectableConfiguration config;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("confuciusSnapshot", ".cfg");
+		try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+			writer.print("[Default]\nhost = localhost\nport = 8080\ndb.pool.min = 1\ndb.pool.max = 8\n");
+		}
+		config = new InjectableConfiguration(file.getAbsolutePath(), null);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testPinnedSnapshotIgnoresLaterChanges() {
+		ConfigurationSnapshot pinned = config.getSnapshot();
+		config.setProperty("host", "example.com");
+		config.clearProperty("port");
+		assertEquals("localhost", pinned.getStringValue("host"));
+		assertEquals(8080, pinned.getIntValue("port"));
+		assertEquals("example.com", config.getSnapshot().getStringValue("host"));
+		assertEquals(pinned.getVersion() + 2, config.getVersion());
+	}
+
+	@Test
+	public void testOldVersions() {
+		long version = config.getVersion();
+		config.setProperty("port", 9090);
+		assertEquals(8080, config.getSnapshot(version).getIntValue("port"));
+		assertEquals(9090, config.getSnapshot(version + 1).getIntValue("port"));
+		assertNull(config.getSnapshot(version + 2));
+		for (int i = 0; i < 20; i++)
+			config.setProperty("port", i);
+		assertNull(config.getSnapshot(version));
+	}
+
+	@Test
+	public void testUnchangedReloadKeepsVersion() {
+		ConfigurationSnapshot current = config.getSnapshot();
+		config.reload();
+		assertSame(current, config.getSnapshot());
+	}
+
+	@Test
+	public void testDiff() {
+		ConfigurationSnapshot before = config.getSnapshot();
+		config.setProperty("host", "example.com");
+		config.setProperty("added", "value");
+		config.clearProperty("port");
+		ConfigurationDiff diff = before.diff(config.getSnapshot());
+		assertEquals(3, diff.size());
+		assertEquals("example.com", diff.getChanged().get("host"));
+		assertEquals("value", diff.getAdded().get("added"));
+		assertTrue(diff.getRemoved().contains("port"));
+	}
+
+	@Test
+	public void testSubset() {
+		assertEquals(Arrays.asList("db.pool.max", "db.pool.min"), new ArrayList<>(config.getSubset("db.pool.")));
+		Map<String, String> pool = config.getSubsetAsMap("db.pool.");
+		assertEquals(2, pool.size());
+		assertEquals("8", pool.get("db.pool.max"));
+		assertNull(pool.get("host"));
+		ConfigurationSnapshot pinned = config.getSnapshot();
+		config.setProperty("db.pool.idle", 2);
+		config.clearProperty("db.pool.min");
+		assertEquals(2, pinned.getSubset("db.pool.").size());
+		assertEquals(Arrays.asList("db.pool.idle", "db.pool.max"), new ArrayList<>(config.getSubset("db.pool.")));
+	}
+
+	@Test
+	public void testKeySetIsView() {
+		Set<String> keys = config.keySet();
+		assertSame(keys, config.keySet());
+		assertEquals(config.size(), keys.size());
+		assertTrue(keys.contains("host"));
+		config.setProperty("added", "value");
+		assertFalse(keys.contains("added"));
+		assertTrue(config.keySet().contains("added"));
+		assertEquals(keys.size() + 1, config.size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testKeySetIsReadOnly() {
+		config.keySet().remove("host");
+	}
+
+	@Test
+	public void testIteration() {
+		Map<String, String> properties = new HashMap<>();
+		for (Map.Entry<String, String> entry : config.getSnapshot())
+			properties.put(entry.getKey(), entry.getValue());
+		assertEquals(config.size(), properties.size());
+		assertEquals("localhost", properties.get("host"));
+		assertEquals(new HashSet<>(config.keySet()), properties.keySet());
+	}
+
+	@Test
+	public void testTypedGetters() {
+		config.setProperty("ratio", "0.5");
+		config.setProperty("ports", "80, 443");
+		config.setProperty("flags", "true,false");
+		config.setProperty("hosts", "a; b");
+		ConfigurationView view = config.getSnapshot();
+		config.clearProperty("ports");
+		assertEquals(0.5f, view.getFloatValue("ratio"), 0);
+		assertEquals((short) 8080, view.getShortValue("port"));
+		assertEquals('l', view.getCharValue("host"));
+		assertEquals((byte) 8, view.getByteValue("db.pool.max"));
+		assertEquals(Arrays.asList(80, 443), view.getIntList("ports"));
+		assertEquals(Arrays.asList("80", "443"), view.getStringList("ports"));
+		assertArrayEquals(new long[] { 80, 443 }, view.getLongArray("ports"));
+		assertArrayEquals(new short[] { 80, 443 }, view.getShortArray("ports"));
+		assertArrayEquals(new boolean[] { true, false }, view.getBooleanArray("flags"));
+		assertEquals(Arrays.asList("a", "b"), view.getStringList("hosts", ";"));
+		assertEquals("8080", view.getProperties().getProperty("port"));
+	}
+
+	@Test
+	public void testDefaults() {
+		ConfigurationSnapshot snapshot = config.getSnapshot();
+		assertTrue(snapshot.getBooleanValue("missing", true));
+		assertEquals((byte) 1, snapshot.getByteValue("missing", (byte) 1));
+		assertEquals('x', snapshot.getCharValue("missing", 'x'));
+		assertEquals(1.5, snapshot.getDoubleValue("missing", 1.5), 0);
+		assertEquals(2.5f, snapshot.getFloatValue("missing", 2.5f), 0);
+		assertEquals(3, snapshot.getIntValue("missing", 3));
+		assertEquals(4L, snapshot.getLongValue("missing", 4L));
+		assertEquals((short) 5, snapshot.getShortValue("missing", (short) 5));
+		assertEquals("none", snapshot.getStringValue("missing", "none"));
+		assertEquals(8080, snapshot.getIntValue("port", 1));
+	}
+
+	@Test
+	public void testReadsShareCacheAndMetrics() {
+		InMemoryConfigurationMetrics metrics = new InMemoryConfigurationMetrics();
+		config.setMetrics(metrics);
+		config.setProperty("ports", "80, 443");
+		ConfigurationSnapshot snapshot = config.getSnapshot();
+		assertSame(config.getIntList("ports"), snapshot.getIntList("ports"));
+		assertEquals(7, snapshot.getIntValue("missing", 7));
+		assertEquals(3, metrics.getReads());
+		assertEquals(1, metrics.getMisses());
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testUnparsableList() {
+		config.getSnapshot().getLongList("host");
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testMissingArray() {
+		config.getSnapshot().getIntArray("missing");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSubsetIsReadOnly() {
+		config.getSubsetAsMap("db.").put("db.url", "jdbc:h2:mem:");
+	}
+}
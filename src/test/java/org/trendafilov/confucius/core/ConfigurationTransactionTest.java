@@ -0,0 +1,97 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class ConfigurationTransactionTest {
+	private InjectableConfiguration config;
+
+	@Before
+	public void setUp() {
+		config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		config.setProperty("db.host", "localhost");
+	}
+
+	@Test
+	public void testUpdate() {
+		config.update(new ConfigurationUpdate() {
+			public void apply(ConfigurationTransaction transaction) {
+				transaction.setProperty("db.port", 5432).setProperty("db.name", "orders").clearProperty("db.host");
+			}
+		});
+		assertEquals(5432, config.getIntValue("db.port"));
+		assertEquals("orders", config.getStringValue("db.name"));
+		assertFalse(config.keySet().contains("db.host"));
+	}
+
+	@Test
+	public void testLastChangeWins() {
+		config.update(new ConfigurationUpdate() {
+			public void apply(ConfigurationTransaction transaction) {
+				transaction.clearProperty("db.host").setProperty("db.host", "remote");
+			}
+		});
+		assertEquals("remote", config.getStringValue("db.host"));
+	}
+
+	@Test
+	public void testFailedUpdateIsNotPublished() {
+		try {
+			config.update(new ConfigurationUpdate() {
+				public void apply(ConfigurationTransaction transaction) {
+					transaction.setProperty("db.port", 5432).setProperty("db.name", null);
+				}
+			});
+			fail();
+		} catch (ConfigurationException e) {
+		}
+		assertFalse(config.keySet().contains("db.port"));
+	}
+
+	@Test
+	public void testUnconvertibleValueRejectsBatch() {
+		ConfigKey<Integer> port = config.intKey("db.port", 5432);
+		try {
+			config.update(new ConfigurationUpdate() {
+				public void apply(ConfigurationTransaction transaction) {
+					transaction.setProperty("db.host", "remote").setProperty("db.port", "abc");
+				}
+			});
+			fail();
+		} catch (ConfigurationException e) {
+			assertTrue(e.getMessage().contains("db.port"));
+		}
+		assertEquals("localhost", config.getStringValue("db.host"));
+		assertEquals(5432, (int) port.get());
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testNullKey() {
+		config.setProperties(Collections.singletonMap((String) null, "value"));
+	}
+}
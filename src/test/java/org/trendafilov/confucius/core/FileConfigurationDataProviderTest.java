@@ -21,6 +21,7 @@ import org.junit.After;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 public class FileConfigurationDataProviderTest extends TestCase {
@@ -52,6 +53,31 @@ public class FileConfigurationDataProviderTest extends TestCase {
 		assertEquals("c", lines.get(2));
 	}
 
+	@Test
+	public void testMapLargeFile() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			builder.append("key").append(i).append("=value").append(i).append('\n');
+		PrintWriter writer = new PrintWriter(FILENAME, "UTF-8");
+		writer.print(builder);
+		writer.close();
+		FileConfigurationDataProvider provider = new FileConfigurationDataProvider(FILENAME);
+		assertTrue(provider.getContent().isDirect());
+		List<String> lines = provider.getAllLines();
+		assertEquals(10000, lines.size());
+		assertEquals("key9999=value9999", lines.get(9999));
+		assertEquals(builder.toString(), Utils.streamToString(provider.getInputStream()));
+	}
+
+	@Test
+	public void testContentIsNotConsumed() throws IOException {
+		createFile();
+		FileConfigurationDataProvider provider = new FileConfigurationDataProvider(FILENAME);
+		ByteBuffer content = provider.getContent();
+		assertEquals(3, Utils.lines(Utils.decode(content)).size());
+		assertEquals(0, content.position());
+	}
+
 	@After
 	public void tearDown() {
 		new File(FILENAME).delete();
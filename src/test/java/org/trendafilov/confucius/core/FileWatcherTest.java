@@ -0,0 +1,144 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class FileWatcherTest {
+	private final static long DEBOUNCE_MILLIS = 200;
+	private final static long TIMEOUT_MILLIS = 10000;
+	private File directory;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("confuciusWatch", "");
+		directory.delete();
+		directory.mkdir();
+		file = new File(directory, "watched.cfg");
+		write("[Default]\nkey = 1\n");
+	}
+
+	@Test
+	public void testReloadOnChange() throws Exception {
+		InjectableConfiguration config = new InjectableConfiguration(file.getAbsolutePath(), null);
+		config.watch(DEBOUNCE_MILLIS);
+		try {
+			write("[Default]\nkey = 2\n");
+			long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			while (config.getIntValue("key") != 2 && System.currentTimeMillis() < deadline)
+				Thread.sleep(20);
+			assertEquals(2, config.getIntValue("key"));
+		} finally {
+			config.stopWatching();
+		}
+	}
+
+	@Test
+	public void testBurstIsReloaded() throws Exception {
+		InjectableConfiguration config = new InjectableConfiguration(file.getAbsolutePath(), null);
+		InMemoryConfigurationMetrics metrics = new InMemoryConfigurationMetrics();
+		config.setMetrics(metrics);
+		config.watch(DEBOUNCE_MILLIS);
+		try {
+			for (int i = 2; i < 6; i++) {
+				write("[Default]\nkey = " + i + "\n");
+				Thread.sleep(DEBOUNCE_MILLIS / 10);
+			}
+			long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			while (config.getIntValue("key") != 5 && System.currentTimeMillis() < deadline)
+				Thread.sleep(20);
+			assertEquals(5, config.getIntValue("key"));
+			assertTrue(metrics.getReloads().getCount() >= 1);
+		} finally {
+			config.stopWatching();
+		}
+	}
+
+	@Test
+	public void testReloadedContentIsSkipped() throws Exception {
+		final AtomicInteger reloads = new AtomicInteger();
+		FileWatcher watcher = new FileWatcher(file.toPath(), DEBOUNCE_MILLIS, new Runnable() {
+			public void run() {
+				reloads.incrementAndGet();
+			}
+		}, Utils.checksum(file.toPath()));
+		write("[Default]\nkey = 2\n");
+		watcher.loaded(Utils.checksum(file.toPath()));
+		watcher.start();
+		try {
+			write("[Default]\nkey = 2\n");
+			Thread.sleep(DEBOUNCE_MILLIS * 5);
+			assertEquals(0, reloads.get());
+		} finally {
+			watcher.stop();
+		}
+	}
+
+	@Test
+	public void testUnchangedContentIsSkipped() throws Exception {
+		final AtomicInteger reloads = new AtomicInteger();
+		FileWatcher watcher = new FileWatcher(file.toPath(), DEBOUNCE_MILLIS, new Runnable() {
+			public void run() {
+				reloads.incrementAndGet();
+			}
+		}, Utils.checksum(file.toPath()));
+		watcher.start();
+		try {
+			write("[Default]\nkey = 1\n");
+			Thread.sleep(DEBOUNCE_MILLIS * 5);
+			assertEquals(0, reloads.get());
+		} finally {
+			watcher.stop();
+		}
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testStreamCannotBeWatched() {
+		new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null).watch();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		directory.delete();
+	}
+
+	private void write(String content) {
+		try {
+			PrintWriter writer = new PrintWriter(file, "UTF-8");
+			writer.print(content);
+			writer.close();
+		} catch (FileNotFoundException | UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class InMemoryConfigurationMetricsTest {
+	private File file;
+	private InjectableConfiguration config;
+	private InMemoryConfigurationMetrics metrics;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("confuciusMetrics", ".cfg");
+		try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+			writer.print("[Default]\nport = 8080\nhosts = a, b\n");
+		}
+		config = new InjectableConfiguration(file.getAbsolutePath(), null);
+		metrics = new InMemoryConfigurationMetrics();
+		config.setMetrics(metrics);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testReadsAndMisses() {
+		config.getIntValue("port");
+		config.getStringList("hosts");
+		config.getIntValue("missing", 1);
+		try {
+			config.getStringValue("missing");
+		} catch (ConfigurationException e) {
+			// expected
+		}
+		assertEquals(4, metrics.getReads());
+		assertEquals(2, metrics.getMisses());
+	}
+
+	@Test
+	public void testWrites() {
+		config.setProperty("a", 1);
+		config.clearProperty("a");
+		config.setProperties(config.getSubsetAsMap(""));
+		assertEquals(2 + config.size(), metrics.getWrites());
+	}
+
+	@Test
+	public void testParseReloadAndReset() {
+		config.reload();
+		config.reset();
+		assertEquals(2, metrics.getParses().getCount());
+		assertEquals(1, metrics.getReloads().getCount());
+		assertEquals(1, metrics.getResets().getCount());
+		assertTrue(metrics.getParses().getMax(TimeUnit.NANOSECONDS) > 0);
+		assertTrue(metrics.getReloads().getTotal(TimeUnit.NANOSECONDS) >= metrics.getReloads().getMax(TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testLayerResetAndContextSwitch() {
+		config.reset(Layer.FILE);
+		config.reset(Layer.RUNTIME);
+		config.switchContext(null);
+		assertEquals(1, metrics.getParses().getCount());
+		assertEquals(2, metrics.getResets().getCount());
+		assertEquals(1, metrics.getReloads().getCount());
+	}
+
+	@Test
+	public void testSnapshotAndClear() {
+		config.getIntValue("port");
+		Map<String, Long> values = metrics.snapshot();
+		assertEquals(Long.valueOf(1), values.get("reads"));
+		assertEquals(Long.valueOf(0), values.get("parse.count"));
+		assertTrue(values.containsKey("reset.lock.time.max"));
+		metrics.clear();
+		assertEquals(0, metrics.getReads());
+	}
+
+	@Test
+	public void testRemovedSinkIsNotCalled() {
+		config.setMetrics(null);
+		config.getIntValue("port");
+		config.setProperty("a", 1);
+		assertEquals(0, metrics.getReads());
+		assertEquals(0, metrics.getWrites());
+	}
+}
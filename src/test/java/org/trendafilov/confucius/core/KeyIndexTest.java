@@ -0,0 +1,82 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class KeyIndexTest {
+	@Test
+	public void testMatchesTreeSet() {
+		Random random = new Random(7);
+		TreeSet<String> expected = new TreeSet<>();
+		KeyIndex index = KeyIndex.EMPTY;
+		for (int i = 0; i < 20000; i++) {
+			String key = "k" + random.nextInt(3000);
+			boolean remove = random.nextInt(3) == 0;
+			if (remove)
+				expected.remove(key);
+			else
+				expected.add(key);
+			index = index.withChanges(Collections.singletonMap(key, remove ? null : "v"));
+		}
+		assertEquals(new ArrayList<>(expected), new ArrayList<>(index.withPrefix("")));
+		assertEquals(new ArrayList<>(expected.subSet("k12", "k13")), new ArrayList<>(index.withPrefix("k12")));
+	}
+
+	@Test
+	public void testPrefix() {
+		KeyIndex index = KeyIndex.EMPTY.withChanges(changes("db.pool.size", "db.pool.max", "db.poolx", "db.url", "kafka.consumer.group"));
+		assertEquals(Arrays.asList("db.pool.max", "db.pool.size"), new ArrayList<>(index.withPrefix("db.pool.")));
+		assertEquals(2, index.withPrefix("db.pool.").size());
+		assertEquals(4, index.withPrefix("db.").size());
+		assertTrue(index.withPrefix("db.").contains("db.url"));
+		assertFalse(index.withPrefix("db.").contains("kafka.consumer.group"));
+		assertTrue(index.withPrefix("zookeeper.").isEmpty());
+	}
+
+	@Test
+	public void testPreviousVersionUnchanged() {
+		KeyIndex before = KeyIndex.EMPTY.withChanges(changes("a.1", "a.2"));
+		Map<String, String> removal = new HashMap<>();
+		removal.put("a.1", null);
+		removal.put("a.3", "v");
+		KeyIndex after = before.withChanges(removal);
+		assertEquals(Arrays.asList("a.1", "a.2"), new ArrayList<>(before.withPrefix("a.")));
+		assertEquals(Arrays.asList("a.2", "a.3"), new ArrayList<>(after.withPrefix("a.")));
+		assertSame(after, after.withChanges(changes("a.2")));
+	}
+
+	private static Map<String, String> changes(String... keys) {
+		Map<String, String> changes = new HashMap<>();
+		for (String key : keys)
+			changes.put(key, "v");
+		return changes;
+	}
+}
@@ -0,0 +1,142 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class KeyUsageReportTest {
+	private File file;
+	private InjectableConfiguration config;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("confuciusUsage", ".cfg");
+		try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+			writer.print("[Default]\nport = 8080\nhosts = a, b\nretries = 3\nunused.a = 1\nunused.b = 2\n");
+		}
+		config = new InjectableConfiguration(file.getAbsolutePath(), null);
+		config.trackKeyUsage(1);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testUnreadKeys() {
+		config.getIntValue("port");
+		config.getStringList("hosts");
+		config.intKey("retries", 1);
+		KeyUsageReport report = config.getKeyUsageReport();
+		assertTrue(report.getUnreadKeys().containsAll(Arrays.asList("unused.a", "unused.b")));
+		assertFalse(report.getUnreadKeys().contains("port"));
+		assertFalse(report.getUnreadKeys().contains("hosts"));
+		assertFalse(report.getUnreadKeys().contains("retries"));
+	}
+
+	@Test
+	public void testHottestKeysByGetter() {
+		for (int i = 0; i < 3; i++)
+			config.getIntValue("port");
+		config.getStringValue("port");
+		config.getIntArray("port");
+		config.getStringList("hosts");
+		config.getIntValue("missing", 0);
+		List<KeyUsage> hottest = config.getKeyUsageReport().getHottestKeys(2);
+		assertEquals(2, hottest.size());
+		KeyUsage port = hottest.get(0);
+		assertEquals("port", port.getKey());
+		assertEquals(5, port.getReads());
+		assertEquals(Long.valueOf(3), port.getReadsByGetter().get("getIntValue"));
+		assertEquals(Long.valueOf(1), port.getReadsByGetter().get("getStringValue"));
+		assertEquals(Long.valueOf(1), port.getReadsByGetter().get("getIntArray"));
+		assertNull(config.getKeyUsageReport().getUsage("missing"));
+		assertNull(config.getKeyUsageReport().getUsage("retries"));
+	}
+
+	@Test
+	public void testSnapshotReads() {
+		ConfigurationSnapshot snapshot = config.getSnapshot();
+		snapshot.getIntValue("retries");
+		snapshot.getStringList("hosts", ";");
+		KeyUsageReport report = config.getKeyUsageReport();
+		assertFalse(report.getUnreadKeys().contains("retries"));
+		assertEquals(Long.valueOf(1), report.getUsage("retries").getReadsByGetter().get("getIntValue"));
+		assertEquals(Long.valueOf(1), report.getUsage("hosts").getReadsByGetter().get("getStringList"));
+	}
+
+	@Test
+	public void testGroupReads() {
+		config.getSubsetAsMap("unused.").get("unused.a");
+		for (String key : config.getSubset("ret"))
+			assertEquals("retries", key);
+		KeyUsageReport report = config.getKeyUsageReport();
+		assertTrue(report.getUnreadKeys().containsAll(Arrays.asList("hosts", "port", "unused.b")));
+		assertFalse(report.getUnreadKeys().contains("unused.a"));
+		assertFalse(report.getUnreadKeys().contains("retries"));
+		assertEquals(Long.valueOf(1), report.getUsage("unused.a").getReadsByGetter().get("getSubsetAsMap"));
+		assertEquals(Long.valueOf(1), report.getUsage("retries").getReadsByGetter().get("getSubset"));
+		config.getProperties();
+		for (Map.Entry<String, String> entry : config.getSnapshot())
+			entry.getValue();
+		report = config.getKeyUsageReport();
+		assertTrue(report.getUnreadKeys().isEmpty());
+		assertEquals(Long.valueOf(1), report.getUsage("port").getReadsByGetter().get("getProperties"));
+		assertEquals(Long.valueOf(1), report.getUsage("port").getReadsByGetter().get("iterator"));
+	}
+
+	@Test
+	public void testMissingKeysAreNotRecorded() {
+		for (int i = 0; i < 100; i++) {
+			config.getIntValue("missing." + i, 0);
+			config.getSnapshot().getStringValue("missing." + i, null);
+		}
+		assertTrue(config.getKeyUsageReport().getHottestKeys(Integer.MAX_VALUE).isEmpty());
+	}
+
+	@Test
+	public void testSampling() {
+		config.trackKeyUsage(4);
+		for (int i = 0; i < 10000; i++)
+			config.getIntValue("port");
+		long reads = config.getKeyUsageReport().getUsage("port").getReads();
+		assertEquals(0, reads % 4);
+		assertTrue(reads > 8000 && reads < 12000);
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testNotTracked() {
+		config.trackKeyUsage(0);
+		config.getKeyUsageReport();
+	}
+}
@@ -0,0 +1,109 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class LayersTest {
+	@Test
+	public void testHigherLayerWins() {
+		Layers layers = new Layers();
+		layers.replace(Layer.SYSTEM, map("a", "system", "b", "system"));
+		layers.replace(Layer.FILE, map("a", "file"));
+		Map<String, String> view = layers.flatten();
+		assertEquals("file", view.get("a"));
+		assertEquals("system", view.get("b"));
+		assertEquals(Layer.FILE, layers.source("a"));
+		assertEquals(Layer.SYSTEM, layers.source("b"));
+	}
+
+	@Test
+	public void testReplaceReturnsOnlyKeysOfLayer() {
+		Layers layers = new Layers();
+		layers.replace(Layer.SYSTEM, map("a", "system", "b", "system"));
+		layers.replace(Layer.FILE, map("a", "file", "c", "file"));
+		Map<String, String> changes = layers.replace(Layer.FILE, map("c", "changed"));
+		assertEquals(2, changes.size());
+		assertEquals("system", changes.get("a"));
+		assertEquals("changed", changes.get("c"));
+	}
+
+	@Test
+	public void testNullHidesLowerLayers() {
+		Layers layers = new Layers();
+		layers.replace(Layer.FILE, map("a", "file"));
+		Map<String, String> changes = layers.update(Layer.RUNTIME, Collections.<String, String> singletonMap("a", null));
+		assertTrue(changes.containsKey("a"));
+		assertNull(changes.get("a"));
+		assertNull(layers.source("a"));
+		assertFalse(layers.flatten().containsKey("a"));
+		changes = layers.replace(Layer.RUNTIME, Collections.<String, String> emptyMap());
+		assertEquals("file", changes.get("a"));
+	}
+
+	@Test
+	public void testLowerLayerChangeBelowOverride() {
+		Layers layers = new Layers();
+		layers.update(Layer.RUNTIME, map("a", "runtime"));
+		Map<String, String> changes = layers.replace(Layer.FILE, map("a", "file"));
+		assertEquals("runtime", changes.get("a"));
+	}
+
+	@Test
+	public void testConfigurationLayers() throws IOException {
+		File file = File.createTempFile("confuciusLayers", ".cfg");
+		try {
+			try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+				writer.print("[Default]\njava.version = file\nkey = file\n");
+			}
+			InjectableConfiguration config = new InjectableConfiguration(file.getAbsolutePath(), null);
+			assertEquals(Layer.FILE, config.getSource("java.version"));
+			assertEquals(System.getProperty("java.version"), config.getLayer(Layer.SYSTEM).get("java.version"));
+			config.setProperty("key", "runtime");
+			config.clearProperty("java.version");
+			assertEquals(Layer.RUNTIME, config.getSource("key"));
+			assertFalse(config.keySet().contains("java.version"));
+			ConfigurationDiff diff = config.reset(Layer.RUNTIME);
+			assertEquals(2, diff.size());
+			assertEquals("file", config.getStringValue("key"));
+			assertEquals("file", config.getStringValue("java.version"));
+			assertTrue(config.getLayer(Layer.RUNTIME).isEmpty());
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static Map<String, String> map(String... entries) {
+		Map<String, String> map = new HashMap<>();
+		for (int i = 0; i < entries.length; i += 2)
+			map.put(entries[i], entries[i + 1]);
+		return map;
+	}
+}
@@ -0,0 +1,163 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class LazySubstitutionTest {
+	private InjectableConfiguration config;
+
+	@Before
+	public void setUp() throws UnsupportedEncodingException {
+		System.setProperty("conf.substitution.lazy", "true");
+		String conf = "[Default]\ndb.host=localhost\ndb.port=5432\ndb.url=jdbc:${db.host}:${db.port}/x\n"
+				+ "backup.url=${db.url}\npool.size=${pool.default}\npool.default=8\n";
+		config = new InjectableConfiguration(new ByteArrayInputStream(conf.getBytes("UTF-8")), null);
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty("conf.substitution.lazy");
+	}
+
+	@Test
+	public void testResolveOnRead() {
+		assertEquals("jdbc:localhost:5432/x", config.getStringValue("db.url"));
+		assertEquals("jdbc:localhost:5432/x", config.getStringValue("backup.url"));
+		assertEquals(8, config.getIntValue("pool.size"));
+		assertEquals("jdbc:localhost:5432/x", config.getProperties().getProperty("backup.url"));
+	}
+
+	@Test
+	public void testChangeUpdatesDependents() {
+		assertEquals("jdbc:localhost:5432/x", config.getStringValue("backup.url"));
+		config.setProperty("db.host", "remote");
+		assertEquals("jdbc:remote:5432/x", config.getStringValue("db.url"));
+		assertEquals("jdbc:remote:5432/x", config.getStringValue("backup.url"));
+		config.setProperty("db.url", "jdbc:${db.host}/y");
+		assertEquals("jdbc:remote/y", config.getStringValue("backup.url"));
+		config.clearProperty("db.host");
+		assertEquals("jdbc:${db.host}/y", config.getStringValue("db.url"));
+		assertEquals("${db.url}", config.getStringValue("backup.url"));
+	}
+
+	@Test
+	public void testSnapshotResolvesItsOwnVersion() {
+		ConfigurationSnapshot pinned = config.getSnapshot();
+		config.setProperty("db.host", "remote");
+		assertEquals("jdbc:localhost:5432/x", pinned.getStringValue("backup.url"));
+		for (Map.Entry<String, String> entry : pinned)
+			if (entry.getKey().equals("db.url"))
+				assertEquals("jdbc:localhost:5432/x", entry.getValue());
+		assertEquals("jdbc:remote:5432/x", config.getSnapshot().getStringValue("backup.url"));
+	}
+
+	@Test
+	public void testHandlesFollowDependencies() {
+		ConfigKey<Integer> poolSize = config.intKey("pool.size", 1);
+		assertEquals(Integer.valueOf(8), poolSize.get());
+		config.setProperty("pool.default", 16);
+		assertEquals(Integer.valueOf(16), poolSize.get());
+		config.setProperty("pool.size", "${pool.default}0");
+		assertEquals(Integer.valueOf(160), poolSize.get());
+		config.setProperty("pool.default", "many");
+		assertEquals(Integer.valueOf(160), poolSize.get());
+		try {
+			config.setProperties(map("pool.size", "${pool.default}"));
+		} catch (ConfigurationException e) {
+			assertEquals("many0", config.getStringValue("pool.size"));
+			return;
+		}
+		fail("Expected the unconvertible resolved value to be rejected");
+	}
+
+	@Test
+	public void testListenersSeeResolvedValues() {
+		final List<ConfigurationChange> changes = new ArrayList<>();
+		config.setListenerExecutor(new Executor() {
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		config.addPrefixListener("", new ConfigurationListener() {
+			public void onChange(ConfigurationChange change) {
+				changes.add(change);
+			}
+		});
+		config.setProperty("db.port", 6543);
+		assertEquals(1, changes.size());
+		assertEquals("6543", changes.get(0).getValue("db.port"));
+		assertEquals("jdbc:localhost:6543/x", changes.get(0).getValue("db.url"));
+		assertEquals("jdbc:localhost:6543/x", changes.get(0).getValue("backup.url"));
+		assertFalse(changes.get(0).keySet().contains("pool.size"));
+	}
+
+	@Test
+	public void testPublishReturnsChangedDependents() {
+		LazySubstitution substitution = new LazySubstitution();
+		Map<String, String> snapshot = map("a", "1", "b", "${a}", "c", "${b}-${d}", "d", "x", "e", "${d}");
+		assertTrue(substitution.publish(snapshot, snapshot).isEmpty());
+		assertEquals("1-x", substitution.get("c"));
+		Map<String, String> derived = substitution.publish(map("a", "2", "b", "${a}", "c", "${b}-${d}", "d", "x", "e", "${d}"), map("a", "2"));
+		assertEquals(map("b", "2", "c", "2-x"), derived);
+		assertEquals("2-x", substitution.get("c"));
+	}
+
+	@Test
+	public void testPublishKeepsUnaffectedMemo() {
+		LazySubstitution substitution = new LazySubstitution();
+		Map<String, String> snapshot = map("a", "1", "b", "${a}", "c", "${b}", "d", "x", "e", "${d}");
+		substitution.publish(snapshot, snapshot);
+		assertEquals("1", substitution.get("c"));
+		assertEquals("x", substitution.get("e"));
+		substitution.publish(map("a", "2", "b", "${a}", "c", "${b}", "d", "x", "e", "${d}"), map("a", "2"));
+		assertTrue(substitution.getState().isMemoized("e"));
+		assertEquals("2", substitution.get("c"));
+	}
+
+	@Test
+	public void testCycleIsLeftLiteral() {
+		config.setProperty("a", "${b}");
+		config.setProperty("b", "${a}");
+		assertEquals("${b}", config.getStringValue("a"));
+		config.setProperty("b", "done");
+		assertEquals("done", config.getStringValue("a"));
+	}
+
+	private static Map<String, String> map(String... pairs) {
+		Map<String, String> map = new HashMap<>();
+		for (int i = 0; i < pairs.length; i += 2)
+			map.put(pairs[i], pairs[i + 1]);
+		return map;
+	}
+}
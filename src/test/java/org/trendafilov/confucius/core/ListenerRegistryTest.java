@@ -0,0 +1,220 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trendafilov.confucius.InjectableConfiguration;
+
+public class ListenerRegistryTest {
+	private InjectableConfiguration config;
+	private QueueExecutor executor;
+
+	@Before
+	public void setUp() {
+		config = new InjectableConfiguration(new ByteArrayInputStream(new byte[0]), null);
+		executor = new QueueExecutor();
+		config.setListenerExecutor(executor);
+	}
+
+	@Test
+	public void testExactListener() {
+		RecordingListener listener = new RecordingListener();
+		config.addListener("db.host", listener);
+		config.setProperty("db.host", "remote");
+		config.setProperty("db.hostname", "other");
+		executor.runAll();
+		assertEquals(1, listener.changes.size());
+		assertEquals("remote", listener.changes.get(0).getValue("db.host"));
+	}
+
+	@Test
+	public void testPrefixListener() {
+		RecordingListener listener = new RecordingListener();
+		RecordingListener all = new RecordingListener();
+		config.addPrefixListener("db.pool.", listener);
+		config.addPrefixListener("", all);
+		config.setProperty("db.pool.size", 10);
+		config.setProperty("db.host", "remote");
+		executor.runAll();
+		assertEquals(1, listener.changes.size());
+		assertEquals(1, listener.changes.get(0).keySet().size());
+		assertEquals(1, all.changes.size());
+		assertEquals(2, all.changes.get(0).keySet().size());
+	}
+
+	@Test
+	public void testOneDeltaPerBatch() {
+		RecordingListener listener = new RecordingListener();
+		config.addPrefixListener("db.", listener);
+		config.addListener("db.port", listener);
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("db.host", "remote");
+		properties.put("db.port", 5432);
+		properties.put("other", "value");
+		config.setProperties(properties);
+		executor.runAll();
+		assertEquals(1, listener.changes.size());
+		assertEquals(2, listener.changes.get(0).keySet().size());
+	}
+
+	@Test
+	public void testRapidChangesAreCoalesced() {
+		RecordingListener listener = new RecordingListener();
+		config.addPrefixListener("db.", listener);
+		config.setProperty("db.host", "first");
+		config.setProperty("db.host", "second");
+		config.setProperty("db.port", 5432);
+		config.clearProperty("db.port");
+		assertEquals(1, executor.tasks.size());
+		executor.runAll();
+		assertEquals(1, listener.changes.size());
+		ConfigurationChange change = listener.changes.get(0);
+		assertEquals("second", change.getValue("db.host"));
+		assertTrue(change.isRemoved("db.port"));
+	}
+
+	@Test
+	public void testChangesDuringDeliveryAreDeliveredNext() {
+		final List<ConfigurationChange> changes = new ArrayList<>();
+		config.addListener("key", new ConfigurationListener() {
+			public void onChange(ConfigurationChange change) {
+				changes.add(change);
+				if (changes.size() == 1)
+					config.setProperty("key", "second");
+			}
+		});
+		config.setProperty("key", "first");
+		executor.runAll();
+		assertEquals(2, changes.size());
+		assertEquals("second", changes.get(1).getValue("key"));
+	}
+
+	@Test
+	public void testRemoveListener() {
+		RecordingListener listener = new RecordingListener();
+		config.addListener("key", listener);
+		config.addPrefixListener("k", listener);
+		config.removeListener(listener);
+		config.setProperty("key", "value");
+		executor.runAll();
+		assertTrue(listener.changes.isEmpty());
+	}
+
+	@Test
+	public void testRemoveListenerPrunesTrie() {
+		ListenerRegistry registry = new ListenerRegistry();
+		RecordingListener listener = new RecordingListener();
+		RecordingListener other = new RecordingListener();
+		registry.addListener("db.host", other);
+		registry.addListener("db.hostname", listener);
+		registry.addPrefixListener("db.pool.", listener);
+		assertEquals(16, registry.nodes());
+		registry.removeListener(listener);
+		assertEquals(7, registry.nodes());
+		registry.removeListener(other);
+		assertEquals(0, registry.nodes());
+	}
+
+	@Test
+	public void testRejectedDeliveryIsRetried() {
+		RecordingListener listener = new RecordingListener();
+		config.addListener("key", listener);
+		executor.reject = true;
+		config.setProperty("key", "first");
+		executor.reject = false;
+		config.setProperty("other", "value");
+		config.addListener("other", listener);
+		config.setProperty("other", "second");
+		executor.runAll();
+		assertEquals(1, listener.changes.size());
+		assertEquals("first", listener.changes.get(0).getValue("key"));
+		assertEquals("second", listener.changes.get(0).getValue("other"));
+	}
+
+	@Test
+	public void testExecutorIsCalledOutsideTheWriterLock() throws InterruptedException {
+		final List<Boolean> written = new ArrayList<>();
+		config.setListenerExecutor(new Executor() {
+			public void execute(Runnable command) {
+				Thread writer = new Thread(new Runnable() {
+					public void run() {
+						config.setProperty("other", "value");
+					}
+				});
+				writer.start();
+				try {
+					writer.join(5000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				written.add(!writer.isAlive());
+			}
+		});
+		config.addListener("key", new RecordingListener());
+		config.setProperty("key", "value");
+		assertEquals(1, written.size());
+		assertTrue(written.get(0));
+	}
+
+	@Test
+	public void testResetNotifiesChangedKeysOnly() {
+		config.setProperty("key", "value");
+		RecordingListener listener = new RecordingListener();
+		config.addPrefixListener("", listener);
+		config.reset();
+		executor.runAll();
+		assertEquals(1, listener.changes.size());
+		assertTrue(listener.changes.get(0).isRemoved("key"));
+		assertEquals(1, listener.changes.get(0).keySet().size());
+	}
+
+	private static class RecordingListener implements ConfigurationListener {
+		private final List<ConfigurationChange> changes = new ArrayList<>();
+
+		public void onChange(ConfigurationChange change) {
+			changes.add(change);
+		}
+	}
+
+	private static class QueueExecutor implements Executor {
+		private final List<Runnable> tasks = new ArrayList<>();
+		private boolean reject;
+
+		public void execute(Runnable command) {
+			if (reject)
+				throw new RejectedExecutionException();
+			tasks.add(command);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty())
+				tasks.remove(0).run();
+		}
+	}
+}
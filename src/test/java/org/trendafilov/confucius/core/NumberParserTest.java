@@ -0,0 +1,94 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class NumberParserTest {
+	private final static String[] INPUTS = { "0", "7", "-7", "+7", "-", "+", "", "12a", "a12", "2147483647", "2147483648", "-2147483648",
+			"-2147483649", "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809", "127", "128",
+			"-128", "-129", "32767", "32768", "-32769", "00012", "1 2", "\u0661\u0662" };
+
+	@Test
+	public void testParseInt() {
+		for (String input : INPUTS) {
+			String value = "[" + input + "]";
+			Integer expected = null;
+			try {
+				expected = Integer.parseInt(input);
+			} catch (NumberFormatException e) {
+			}
+			try {
+				int actual = NumberParser.parseInt(value, 1, value.length() - 1);
+				assertEquals(input, expected, (Integer) actual);
+			} catch (NumberFormatException e) {
+				assertEquals(input, null, expected);
+			}
+		}
+	}
+
+	@Test
+	public void testParseLong() {
+		for (String input : INPUTS) {
+			String value = "[" + input + "]";
+			Long expected = null;
+			try {
+				expected = Long.parseLong(input);
+			} catch (NumberFormatException e) {
+			}
+			try {
+				long actual = NumberParser.parseLong(value, 1, value.length() - 1);
+				assertEquals(input, expected, (Long) actual);
+			} catch (NumberFormatException e) {
+				assertEquals(input, null, expected);
+			}
+		}
+	}
+
+	@Test
+	public void testParseByteAndShort() {
+		assertEquals((byte) -128, NumberParser.parseByte("-128", 0, 4));
+		assertEquals((short) 32767, NumberParser.parseShort("32767", 0, 5));
+		try {
+			NumberParser.parseByte("128", 0, 3);
+			fail();
+		} catch (NumberFormatException e) {
+		}
+		try {
+			NumberParser.parseShort("-32769", 0, 6);
+			fail();
+		} catch (NumberFormatException e) {
+		}
+	}
+
+	@Test
+	public void testParseBoolean() {
+		assertTrue(NumberParser.parseBoolean("a,TRUE", 2, 6));
+		assertFalse(NumberParser.parseBoolean("a,true1", 2, 7));
+		assertFalse(NumberParser.parseBoolean("", 0, 0));
+	}
+
+	@Test(expected = StringIndexOutOfBoundsException.class)
+	public void testParseEmptyChar() {
+		NumberParser.parseChar("a,,b", 2, 2);
+	}
+}
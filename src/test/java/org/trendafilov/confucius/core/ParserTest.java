@@ -20,12 +20,15 @@ import org.junit.After;
 import org.junit.Test;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ParserTest {
@@ -227,6 +230,125 @@ public class ParserTest {
 		assertEquals("https://www.google.com/fp=dfc3525e9a3b356a&q=hello&safe=off/", configuration.get("key"));
 	}
 	
+	@Test
+	public void testIndentedLineWithComment() throws Exception {
+		InputStream inputStream = new ByteArrayInputStream("[Default]\n    key = value # comment\n".getBytes("UTF-8"));
+		Map<String, String> configuration = new Parser(new StreamConfigurationDataProvider(inputStream), null).getConfiguration();
+		assertEquals("value", configuration.get("key"));
+	}
+
+	@Test
+	public void testManyContexts() throws Exception {
+		StringBuilder builder = new StringBuilder("[Default]\nkey=default\n");
+		for (int i = 0; i < 200; i++)
+			builder.append("[Context").append(i).append("]\r\nkey=value").append(i).append("\r\n");
+		builder.append("[context42]\nother=value");
+		InputStream inputStream = new ByteArrayInputStream(builder.toString().getBytes("UTF-8"));
+		Map<String, String> configuration = new Parser(new StreamConfigurationDataProvider(inputStream), "Context42").getConfiguration();
+		assertEquals(2, configuration.size());
+		assertEquals("value42", configuration.get("key"));
+		assertEquals("value", configuration.get("other"));
+	}
+
+	@Test
+	public void testAllContextViews() throws Exception {
+		Parser parser = parse("[Default]\nkey1=default\nkey2=${key1}\n[Test]\nkey1=test\n[Other]\nkey3=other\n", TEST_CONTEXT);
+		assertEquals("test", parser.getConfiguration().get("key2"));
+		assertEquals("test", parser.getConfiguration("TEST").get("key1"));
+		assertEquals("default", parser.getConfiguration("Other").get("key2"));
+		assertEquals("other", parser.getConfiguration("Other").get("key3"));
+		assertEquals(2, parser.getConfiguration("Missing").size());
+		assertEquals(2, parser.getConfiguration(null).size());
+		assertEquals(new HashSet<>(Arrays.asList("Default", "Test", "Other")), parser.getContexts());
+	}
+
+	@Test
+	public void testContextInheritance() throws Exception {
+		Parser parser = parse("[Default]\nkey1=default\nkey4=${key2}\n[Staging : Production]\nkey2=staging\n"
+				+ "[Production]\nkey2=production\nkey3=production\n[Test:Staging]\nkey3=test\n", "test");
+		Map<String, String> configuration = parser.getConfiguration();
+		assertEquals("default", configuration.get("key1"));
+		assertEquals("staging", configuration.get("key2"));
+		assertEquals("test", configuration.get("key3"));
+		assertEquals("staging", configuration.get("key4"));
+		assertEquals("production", parser.getConfiguration("Production").get("key4"));
+		assertEquals(new HashSet<>(Arrays.asList("Default", "Staging", "Production", "Test")), parser.getContexts());
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testCircularInheritance() throws Exception {
+		parse("[A : B]\nkey=a\n[B : A]\nkey=b\n", "A");
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testUnknownParent() throws Exception {
+		parse("[A : B]\nkey=a\n", "A");
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testUnparsableParent() throws Exception {
+		parse("[A : B]\nkey=a\n[B]\nunparsable\n", "A");
+	}
+
+	@Test
+	public void testUnselectedContextsAreNotValidated() throws Exception {
+		Parser parser = parse("[Default]\nkey=value\n[A : B]\n[B]\nunparsable\n[C : D]\n", null);
+		assertEquals("value", parser.getConfiguration().get("key"));
+	}
+
+	@Test
+	public void testViewsAreBuiltOnce() throws Exception {
+		Parser parser = parse("[Default]\nkey=value\n[A]\nkey=a\n[B : A]\nother=b\n", null);
+		Map<String, String> view = parser.getConfiguration("B");
+		assertEquals("a", view.get("key"));
+		assertEquals("b", view.get("other"));
+		assertSame(view, parser.getConfiguration("b"));
+		assertEquals("a", parser.getConfiguration("A").get("key"));
+		assertEquals("value", parser.getConfiguration("Default").get("key"));
+	}
+
+	@Test
+	public void testInheritedValuesAreSubstitutedPerContext() throws Exception {
+		Parser parser = parse("[Default]\nhost=localhost\nurl=http://${host}/\n[A]\nhost=a\n[B : A]\n", null);
+		assertEquals("http://localhost/", parser.getConfiguration("Default").get("url"));
+		assertEquals("http://a/", parser.getConfiguration("A").get("url"));
+		assertEquals("http://a/", parser.getConfiguration("B").get("url"));
+	}
+
+	@Test
+	public void testStreamingMatchesProvider() throws Exception {
+		String[] configurations = {
+				"",
+				"key1=value1\n \nkey3=value3\n",
+				"key1 = a\\\n  b\nkey2:${key1}\r\n# comment\nkey3=\\u0041",
+				"ignored=1\n[Default]\nkey1=value1\r\n[Test-2]\nkey2=value2\r[Test]\nkey3=${key1}\nkey1=override",
+				"[Default]\nkey1=value1\n[Test]\npath=C:\\users\\x # comment",
+				"key1=value1\n[Test]",
+				"[Default]\n  key = value # comment\n[]\n[Test]\r\n\r\nkey2 = x",
+				"[Default]\nkey1=${key2}\n[Base]\nkey2=base\n[Test : Base]\nkey3=${key1}" };
+		for (String configuration : configurations) {
+			byte[] bytes = configuration.getBytes("UTF-8");
+			Map<String, String> expected = new Parser(new StreamConfigurationDataProvider(new ByteArrayInputStream(bytes)), TEST_CONTEXT)
+					.getConfiguration();
+			assertEquals(configuration, expected, new Parser(new ByteArrayInputStream(bytes), TEST_CONTEXT).getConfiguration());
+		}
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testStreamingUnparsableLine() throws Exception {
+		new Parser(new ByteArrayInputStream("[Default]\nkey1=value1\nSomestuff #\n".getBytes("UTF-8")), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStreamingMalformedStandardProperties() throws Exception {
+		new Parser(new ByteArrayInputStream("key=\\uXYZW".getBytes("UTF-8")), null);
+	}
+
+	private Parser parse(String configuration, String context) throws UnsupportedEncodingException {
+		InputStream inputStream = new ByteArrayInputStream(configuration.getBytes("UTF-8"));
+		return new Parser(new StreamConfigurationDataProvider(inputStream), context);
+	}
+
 	@After
 	public void tearDown() {
 		new File(FILENAME).delete();
@@ -0,0 +1,115 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentMapTest {
+	@Test
+	public void testMatchesHashMap() {
+		Random random = new Random(42);
+		Map<String, String> expected = new HashMap<>();
+		PersistentMap<String> map = PersistentMap.<String> empty();
+		for (int i = 0; i < 20000; i++) {
+			String key = "key" + random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				expected.remove(key);
+				map = map.without(key);
+			} else {
+				String value = String.valueOf(random.nextInt(10));
+				expected.put(key, value);
+				map = map.with(key, value);
+			}
+		}
+		assertEquals(expected, map);
+		assertEquals(expected.size(), map.size());
+		assertEquals(expected, new HashMap<>(map));
+	}
+
+	@Test
+	public void testUpdatesDoNotAffectPreviousVersion() {
+		PersistentMap<String> first = PersistentMap.of(Collections.singletonMap("a", "1"));
+		PersistentMap<String> second = first.with("a", "2").with("b", "3");
+		assertEquals("1", first.get("a"));
+		assertFalse(first.containsKey("b"));
+		assertEquals("2", second.get("a"));
+		assertEquals(2, second.size());
+	}
+
+	@Test
+	public void testUnchangedUpdatesReturnSameMap() {
+		PersistentMap<String> map = PersistentMap.of(Collections.singletonMap("a", "1"));
+		assertSame(map, map.with("a", "1"));
+		assertSame(map, map.without("b"));
+		assertSame(PersistentMap.<String> empty(), map.without("a"));
+	}
+
+	@Test
+	public void testHashCollisions() {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		PersistentMap<String> map = PersistentMap.<String> empty().with("Aa", "1").with("BB", "2").with("AaAa", "3").with("BBBB", "4").with("AaBB", "5");
+		assertEquals("1", map.get("Aa"));
+		assertEquals("2", map.get("BB"));
+		assertEquals("5", map.get("AaBB"));
+		assertEquals(5, map.size());
+		map = map.without("Aa").without("AaAa");
+		assertNull(map.get("Aa"));
+		assertEquals("2", map.get("BB"));
+		assertEquals("4", map.get("BBBB"));
+		assertEquals(3, map.size());
+		assertEquals(3, new HashMap<>(map).size());
+	}
+
+	@Test
+	public void testDiff() {
+		Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 5000; i++)
+			properties.put("key" + i, String.valueOf(i));
+		PersistentMap<String> before = PersistentMap.of(properties);
+		PersistentMap<String> after = before.with("key1", "changed").without("key2").with("added", "value");
+		Map<String, String> changes = before.diff(after);
+		assertEquals(3, changes.size());
+		assertEquals("changed", changes.get("key1"));
+		assertTrue(changes.containsKey("key2"));
+		assertNull(changes.get("key2"));
+		assertEquals("value", changes.get("added"));
+		assertTrue(before.diff(before).isEmpty());
+		assertEquals(after, before.withChanges(changes));
+	}
+
+	@Test
+	public void testDiffOfIndependentlyBuiltMaps() {
+		Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 100; i++)
+			properties.put("key" + i, String.valueOf(i));
+		PersistentMap<String> a = PersistentMap.of(properties);
+		properties.put("key7", "changed");
+		PersistentMap<String> b = PersistentMap.of(properties);
+		assertEquals(Collections.singletonMap("key7", "changed"), a.diff(b));
+	}
+}
@@ -61,4 +61,20 @@ public class StreamConfigurationDataProviderTest {
 		provider.getAllLines();
 		assertEquals("contents", Utils.streamToString(provider.getInputStream()));
 	}
+
+	@Test
+	public void testMalformedInputIsReplaced() throws IOException {
+		InputStream inputStream = new ByteArrayInputStream("name=Jos\u00e9".getBytes("ISO-8859-1"));
+		StreamConfigurationDataProvider provider = new StreamConfigurationDataProvider(inputStream);
+		assertEquals("name=Jos\ufffd", provider.getAllLines().get(0));
+	}
+
+	@Test
+	public void testReadStreamOnce() throws IOException {
+		InputStream inputStream = new ByteArrayInputStream("a=1".getBytes("UTF-8"));
+		StreamConfigurationDataProvider provider = new StreamConfigurationDataProvider(inputStream);
+		provider.getContent();
+		assertEquals("a=1", Utils.streamToString(provider.getInputStream()));
+		assertEquals(1, provider.getAllLines().size());
+	}
 }
@@ -0,0 +1,62 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TokenizerTest {
+	private final static String[] VALUES = { "", " ", ",", ",,,", "a", " a ", "a,b", "a, b ,c", ",a", "a,", "a,,", "a,,b", " , ",
+			"a|b|c", "a.b", "a\tb  c", "a;b;;", "1 2  3", "a\\b", "x,y;z", "a  b" };
+	private final static String[] SEPARATORS = { ",", ";", "|", ".", "\\|", "\\.", "\\s+", " ", ",\\s*", "\\\\", "", "a|b", "[,;]", "x" };
+
+	@Test
+	public void testMatchesStringSplit() {
+		for (String separator : SEPARATORS)
+			for (String value : VALUES)
+				assertEquals(value + " / " + separator, split(value, separator), tokens(value, separator));
+	}
+
+	@Test
+	public void testBounds() {
+		int[] bounds = Tokenizer.tokenize(" 12 ,34", ",");
+		assertEquals(4, bounds.length);
+		assertEquals(1, bounds[0]);
+		assertEquals(3, bounds[1]);
+		assertEquals(5, bounds[2]);
+		assertEquals(7, bounds[3]);
+	}
+
+	private List<String> split(String value, String separator) {
+		List<String> parts = new ArrayList<>();
+		for (String item : value.split(separator))
+			parts.add(item.trim());
+		return parts;
+	}
+
+	private List<String> tokens(String value, String separator) {
+		List<String> parts = new ArrayList<>();
+		int[] bounds = Tokenizer.tokenize(value, separator);
+		for (int i = 0; i < bounds.length; i += 2)
+			parts.add(value.substring(bounds[i], bounds[i + 1]));
+		return parts;
+	}
+}
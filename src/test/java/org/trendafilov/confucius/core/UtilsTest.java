@@ -23,6 +23,9 @@ import org.trendafilov.confucius.Configuration;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -55,6 +58,18 @@ public class UtilsTest {
 		assertEquals("contents", Utils.streamToString(inputStream));
 	}
 
+	@Test
+	public void testLines() {
+		assertEquals(Arrays.asList("a", "b", "c", "", "d"), Utils.lines("a\nb\r\nc\r\rd\n"));
+		assertEquals(Arrays.asList("", "a"), Utils.lines("\na"));
+		assertEquals(Arrays.asList(), Utils.lines(""));
+	}
+
+	@Test(expected = CharacterCodingException.class)
+	public void testDecodeRejectsMalformedInput() throws IOException {
+		Utils.decode(ByteBuffer.wrap(new byte[] { 'a', (byte) 0xC3 }));
+	}
+
 	@After
 	public void tearDown() {
 		Configuration.getInstance().reset();
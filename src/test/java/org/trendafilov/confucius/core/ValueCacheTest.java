@@ -0,0 +1,113 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ValueCacheTest {
+	private final static String TEST_KEY = "key";
+
+	@Test
+	public void testScalarIsMemoized() {
+		ValueCache cache = new ValueCache(16);
+		String raw = "123456";
+		Integer first = cache.get(TEST_KEY, raw, ValueConverter.INT);
+		assertSame(first, cache.get(TEST_KEY, raw, ValueConverter.INT));
+		assertEquals(123456L, (long) cache.get(TEST_KEY, raw, ValueConverter.LONG));
+	}
+
+	@Test
+	public void testListIsMemoizedPerSeparator() {
+		ValueCache cache = new ValueCache(16);
+		String raw = "1,2,3";
+		List<Integer> first = cache.getList(TEST_KEY, raw, ",", ValueConverter.INT);
+		assertSame(first, cache.getList(TEST_KEY, raw, ",", ValueConverter.INT));
+		assertEquals(1, cache.getList(TEST_KEY, raw, ";", ValueConverter.STRING).size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testListIsUnmodifiable() {
+		new ValueCache(16).getList(TEST_KEY, "1,2", ",", ValueConverter.INT).add(3);
+	}
+
+	@Test
+	public void testNewRawValueIsNotServedFromCache() {
+		ValueCache cache = new ValueCache(16);
+		assertEquals(1, (int) cache.get(TEST_KEY, "1", ValueConverter.INT));
+		assertEquals(2, (int) cache.get(TEST_KEY, "2", ValueConverter.INT));
+	}
+
+	@Test
+	public void testInvalidate() {
+		ValueCache cache = new ValueCache(16);
+		String raw = "1.5";
+		Double first = cache.get(TEST_KEY, raw, ValueConverter.DOUBLE);
+		cache.invalidate(TEST_KEY);
+		assertEquals(0, cache.size());
+		assertNotSame(first, cache.get(TEST_KEY, raw, ValueConverter.DOUBLE));
+	}
+
+	@Test
+	public void testSizeBound() {
+		ValueCache cache = new ValueCache(4);
+		for (int i = 0; i < 100; i++)
+			cache.get(TEST_KEY + i, "1", ValueConverter.INT);
+		assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void testReadKeySurvivesChurn() {
+		ValueCache cache = new ValueCache(4);
+		String raw = "1,2,3";
+		List<Integer> hot = cache.getList(TEST_KEY, raw, ",", ValueConverter.INT);
+		for (int i = 0; i < 100; i++) {
+			cache.get(TEST_KEY + i, "1", ValueConverter.INT);
+			assertSame(hot, cache.getList(TEST_KEY, raw, ",", ValueConverter.INT));
+		}
+		assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void testDisabledCache() {
+		ValueCache cache = new ValueCache(0);
+		assertEquals(1, (int) cache.get(TEST_KEY, "1", ValueConverter.INT));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testConfigurationInvalidatesOnWrite() {
+		TestConfiguration config = new TestConfiguration();
+		config.setProperty(TEST_KEY, 1);
+		assertEquals(1, config.getIntValue(TEST_KEY));
+		assertEquals(1, config.getCache().size());
+		config.setProperty(TEST_KEY, 2);
+		assertEquals(0, config.getCache().size());
+		assertEquals(2, config.getIntValue(TEST_KEY));
+		config.clearProperty(TEST_KEY);
+		assertEquals(0, config.getCache().size());
+		assertEquals(3, config.getIntValue(TEST_KEY, 3));
+	}
+
+	private static class TestConfiguration extends AbstractConfiguration {
+	}
+}
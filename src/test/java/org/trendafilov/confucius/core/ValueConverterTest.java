@@ -0,0 +1,41 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ValueConverterTest {
+
+	@Test
+	public void testStringArrayMatchesList() {
+		String[] values = { "", "a", " a , b ,c", "a,,b", "x;y" };
+		for (String value : values)
+			assertEquals(value, ValueConverter.STRING.convertList(value, ","),
+					Arrays.asList((String[]) ValueConverter.STRING.convertArray(value, ",")));
+	}
+
+	@Test
+	public void testIntArray() {
+		assertArrayEquals(new int[] { 1, 2, 3 }, (int[]) ValueConverter.INT.convertArray("1, 2 ,3", ","));
+	}
+}
@@ -0,0 +1,82 @@
+/* 
+ * Copyright 2013-2014 Ivan Trendafilov and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trendafilov.confucius.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class VariableResolverTest {
+
+	@Test
+	public void testEmbeddedReferences() {
+		Map<String, String> configuration = resolve("db.host", "localhost", "db.port", "5432", "db.url", "jdbc:${db.host}:${db.port}/x");
+		assertEquals("jdbc:localhost:5432/x", configuration.get("db.url"));
+	}
+
+	@Test
+	public void testChainedReferences() {
+		Map<String, String> configuration = resolve("a", "${b}/a", "b", "${c}/b", "c", "c");
+		assertEquals("c/b/a", configuration.get("a"));
+		assertEquals("c/b", configuration.get("b"));
+	}
+
+	@Test
+	public void testLongChain() {
+		Map<String, String> configuration = new HashMap<>();
+		int length = 100000;
+		for (int i = 0; i < length; i++)
+			configuration.put("key" + i, "${key" + (i + 1) + "}");
+		configuration.put("key" + length, "value");
+		VariableResolver.resolve(configuration);
+		assertEquals("value", configuration.get("key0"));
+	}
+
+	@Test
+	public void testMissingReference() {
+		Map<String, String> configuration = resolve("a", "x${missing}y", "b", "${a}");
+		assertEquals("x${missing}y", configuration.get("a"));
+		assertEquals("${a}", configuration.get("b"));
+	}
+
+	@Test
+	public void testCycle() {
+		Map<String, String> configuration = resolve("a", "${b}", "b", "${c}", "c", "${a}", "d", "${a}-${e}", "e", "e", "f", "${f}");
+		assertEquals("${b}", configuration.get("a"));
+		assertEquals("${c}", configuration.get("b"));
+		assertEquals("${a}", configuration.get("c"));
+		assertEquals("${a}-e", configuration.get("d"));
+		assertEquals("${f}", configuration.get("f"));
+	}
+
+	@Test
+	public void testUnterminatedReference() {
+		Map<String, String> configuration = resolve("a", "a", "b", "${a}${a", "c", "}${");
+		assertEquals("a${a", configuration.get("b"));
+		assertEquals("}${", configuration.get("c"));
+	}
+
+	private static Map<String, String> resolve(String... pairs) {
+		Map<String, String> configuration = new HashMap<>();
+		for (int i = 0; i < pairs.length; i += 2)
+			configuration.put(pairs[i], pairs[i + 1]);
+		return VariableResolver.resolve(configuration);
+	}
+}